@@ -0,0 +1,63 @@
+package de.kune.mvn.extension.version;
+
+import de.kune.mvn.extension.version.GitDevFlow.Increment;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of the classification of a batch of commit messages of the given size.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CommitClassifierBenchmark {
+
+    private static final String[] SUBJECTS = {
+            "feat(core): add something", "fix: repair something", "chore(deps)!: bump", "update something" };
+
+    @Param({ "80", "4096" })
+    public int messageSize;
+
+    private final CommitClassifier classifier = CommitClassifier.configured();
+
+    private String[] messages;
+
+    @Setup
+    public void setUp() {
+        messages = new String[1000];
+        for (int i = 0; i < messages.length; i++) {
+            StringBuilder message = new StringBuilder(SUBJECTS[i % SUBJECTS.length]).append("\n\n");
+            while (message.length() < messageSize) {
+                message.append("Lorem ipsum dolor sit amet. ");
+            }
+            if (i % 100 == 0) {
+                message.append("\nBREAKING CHANGE: something");
+            }
+            messages[i] = message.toString();
+        }
+    }
+
+    @Benchmark
+    public Increment classify() {
+        Increment increment = Increment.NONE;
+        for (String message : messages) {
+            increment = increment.max(classifier.classify(message));
+        }
+        return increment;
+    }
+
+}
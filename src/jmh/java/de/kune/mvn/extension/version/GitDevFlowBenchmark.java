@@ -0,0 +1,122 @@
+package de.kune.mvn.extension.version;
+
+import de.kune.mvn.extension.version.GitDevFlow.TagIndex;
+import de.kune.mvn.extension.version.ReleaseAncestryIndex.Checkpoint;
+import org.codehaus.plexus.logging.Logger;
+import org.codehaus.plexus.logging.console.ConsoleLogger;
+import org.eclipse.jgit.lib.Repository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import static org.apache.commons.io.FileUtils.deleteDirectory;
+
+/**
+ * Benchmarks of version resolution on synthetic repositories, end to end and per phase. The persistent caches are
+ * disabled, so that every invocation walks the history.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GitDevFlowBenchmark {
+
+    @Param({ "10000" })
+    public int commits;
+
+    @Param({ "1000" })
+    public int untagged;
+
+    @Param({ "0", "10" })
+    public int mergeEvery;
+
+    @Param({ "2" })
+    public int fanIn;
+
+    @Param({ "100" })
+    public int tags;
+
+    @Param({ "false", "true" })
+    public boolean annotatedTags;
+
+    @Param({ "80" })
+    public int messageSize;
+
+    private final Logger logger = new ConsoleLogger(Logger.LEVEL_DISABLED, "benchmark");
+
+    private File directory;
+
+    private Repository repository;
+
+    private TagIndex tagIndex;
+
+    private ReleaseAncestryIndex ancestry;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        System.setProperty(PersistentVersionCache.CACHE_PROPERTY, "false");
+        System.setProperty(ReleaseAncestryIndex.ANCESTRY_INDEX_PROPERTY, "false");
+        directory = Files.createTempDirectory("git-dev-flow-benchmark").toFile();
+        new SyntheticRepository()
+                .withCommits(commits)
+                .withUntagged(untagged)
+                .withMerges(mergeEvery, fanIn)
+                .withTags(tags, annotatedTags)
+                .withMessageSize(messageSize)
+                .create(directory);
+        repository = RepositoryRegistry.repository(directory).get();
+        tagIndex = TagIndex.load(repository).indexed();
+        ancestry = ReleaseAncestryIndex.open(logger, repository, false);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        GitDevFlow.clearVersionsCache();
+        RepositoryRegistry.closeAll();
+        deleteDirectory(directory);
+    }
+
+    @Benchmark
+    public String determineVersion() {
+        GitDevFlow.clearVersionsCache();
+        return GitDevFlow.determineVersion(logger, directory);
+    }
+
+    @Benchmark
+    public String determineCachedVersion() {
+        return GitDevFlow.determineVersion(logger, directory);
+    }
+
+    @Benchmark
+    public TagIndex loadTags() throws IOException {
+        return TagIndex.load(repository).indexed();
+    }
+
+    @Benchmark
+    public Checkpoint firstParentWalk() throws IOException {
+        return GitDevFlow.directCommitsAfterReleaseTag(logger, repository, tagIndex, ancestry, false);
+    }
+
+    @Benchmark
+    public Checkpoint reachableTagWalk() throws IOException {
+        return GitDevFlow.latestReachableReleaseTag(logger, repository, tagIndex, ancestry, false);
+    }
+
+}
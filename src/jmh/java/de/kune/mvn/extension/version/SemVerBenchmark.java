@@ -0,0 +1,68 @@
+package de.kune.mvn.extension.version;
+
+import de.kune.mvn.extension.version.GitDevFlow.SemVer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of parsing and sorting release versions as found in tag names.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SemVerBenchmark {
+
+    @Param({ "1000" })
+    public int versions;
+
+    private String[] versionStrings;
+
+    private List<SemVer> parsed;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        versionStrings = new String[versions];
+        parsed = new ArrayList<>(versions);
+        for (int i = 0; i < versions; i++) {
+            versionStrings[i] = (i % 2 == 0 ? "v" : "") + random.nextInt(20) + "." + random.nextInt(50) + "."
+                    + random.nextInt(200);
+            parsed.add(SemVer.of(versionStrings[i]));
+        }
+    }
+
+    @Benchmark
+    public SemVer parse() {
+        SemVer last = null;
+        for (String versionString : versionStrings) {
+            last = SemVer.of(versionString);
+        }
+        return last;
+    }
+
+    @Benchmark
+    public List<SemVer> sort() {
+        List<SemVer> sorted = new ArrayList<>(parsed);
+        Collections.sort(sorted, SemVer.SEM_VER_COMPARATOR);
+        return sorted;
+    }
+
+}
@@ -0,0 +1,93 @@
+package de.kune.mvn.extension.version;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Branch names provided by the build environment for detached checkouts, as done by most CI servers. The system
+ * property {@value #BRANCH_PROPERTY} takes precedence over the environment variables of the CI servers; environment
+ * variables can be ignored by setting {@value #BRANCH_HINTS_PROPERTY} to {@code false}. Since the environment applies
+ * to every repository of the process, a branch hinted by the environment is only trusted if a local or
+ * remote-tracking branch of that name points to HEAD.
+ */
+class BranchHints {
+
+    static final String BRANCH_PROPERTY = "version-extension.branch";
+
+    static final String BRANCH_HINTS_PROPERTY = "version-extension.branch-hints";
+
+    private static final List<String> BRANCH_VARIABLES = Arrays.asList(
+            "GITHUB_HEAD_REF",
+            "CI_MERGE_REQUEST_SOURCE_BRANCH_NAME",
+            "CI_COMMIT_BRANCH",
+            "CI_COMMIT_REF_NAME",
+            "BRANCH_NAME",
+            "GIT_BRANCH",
+            "BITBUCKET_BRANCH",
+            "CIRCLE_BRANCH",
+            "BUILDKITE_BRANCH");
+
+    private static final String[] PREFIXES = { "refs/heads/", "refs/remotes/origin/", "origin/" };
+
+    private BranchHints() {
+    }
+
+    /**
+     * Returns the branch hinted by the system properties or the environment of this process.
+     */
+    public static Optional<String> configured() {
+        Optional<String> branch = property();
+        return branch.isPresent() ? branch : environment();
+    }
+
+    /**
+     * Returns the branch configured by {@value #BRANCH_PROPERTY}.
+     */
+    public static Optional<String> property() {
+        return normalize(System.getProperty(BRANCH_PROPERTY));
+    }
+
+    /**
+     * Returns the branch hinted by the environment of this process, unless disabled.
+     */
+    public static Optional<String> environment() {
+        if ("false".equalsIgnoreCase(System.getProperty(BRANCH_HINTS_PROPERTY))) {
+            return Optional.empty();
+        }
+        return of(System::getenv);
+    }
+
+    /**
+     * Returns the branch hinted by the first of the known CI variables that is set in the given environment. GitLab's
+     * {@code CI_COMMIT_REF_NAME} is ignored for tag pipelines, where it holds the tag name.
+     */
+    static Optional<String> of(Function<String, String> environment) {
+        for (String variable : BRANCH_VARIABLES) {
+            if (variable.equals("CI_COMMIT_REF_NAME") && normalize(environment.apply("CI_COMMIT_TAG")).isPresent()) {
+                continue;
+            }
+            Optional<String> branch = normalize(environment.apply(variable));
+            if (branch.isPresent()) {
+                return branch;
+            }
+        }
+        return Optional.empty();
+    }
+
+    private static Optional<String> normalize(String branch) {
+        if (branch == null || branch.trim().isEmpty()) {
+            return Optional.empty();
+        }
+        String normalized = branch.trim();
+        for (String prefix : PREFIXES) {
+            if (normalized.startsWith(prefix)) {
+                normalized = normalized.substring(prefix.length());
+                break;
+            }
+        }
+        return normalized.isEmpty() ? Optional.empty() : Optional.of(normalized);
+    }
+
+}
@@ -0,0 +1,274 @@
+package de.kune.mvn.extension.version;
+
+import org.codehaus.plexus.logging.Logger;
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.treewalk.EmptyTreeIterator;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.treewalk.filter.AndTreeFilter;
+import org.eclipse.jgit.treewalk.filter.PathFilter;
+import org.eclipse.jgit.treewalk.filter.TreeFilter;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Persistent per-commit bloom filters of the directories changed by a commit (compared to its first parent), used to
+ * skip commits that do not touch a module without diffing their trees. The filters only depend on the commit, so the
+ * index is never invalidated; filters of commits not indexed yet are computed on first use and appended to the index
+ * file. At most {@value #MAX_FILTERS} filters are kept, the least recently used ones are dropped, and the index file is
+ * rewritten with the kept filters once it has twice as many lines. Commits for which the filter may contain a
+ * directory are always verified by a diff limited to that directory (the changed-path filters of the commit-graph are
+ * not read), so false positives of the filter do not affect the result.
+ */
+class ChangedPathIndex {
+
+    private static final String CHANGED_PATHS_FILE = "changed-paths";
+
+    private static final int BITS_PER_DIRECTORY = 10;
+
+    private static final int HASHES = 7;
+
+    private static final int MAX_DIRECTORIES = 512;
+
+    static final int MAX_FILTERS = 65536;
+
+    private static final byte[] ALL_DIRECTORIES = new byte[0];
+
+    private static final String ALL = "*";
+
+    private static final Map<File, ChangedPathIndex> indexes = new ConcurrentHashMap<>();
+
+    private final Logger logger;
+
+    private final File file;
+
+    private final Map<AnyObjectId, byte[]> filters = Collections.synchronizedMap(
+            new LinkedHashMap<AnyObjectId, byte[]>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<AnyObjectId, byte[]> eldest) {
+                    return size() > MAX_FILTERS;
+                }
+            });
+
+    private final Queue<AnyObjectId> added = new ConcurrentLinkedQueue<>();
+
+    private int lines;
+
+    private ChangedPathIndex(Logger logger, File file) {
+        this.logger = logger;
+        this.file = file;
+    }
+
+    /**
+     * Returns the index of the given repository, shared by all modules resolved in this process.
+     */
+    public static ChangedPathIndex of(Logger logger, Repository repository) throws IOException {
+        File file = new File(PersistentVersionCache.stateDirectory(repository), CHANGED_PATHS_FILE);
+        return indexes.computeIfAbsent(file, f -> {
+            ChangedPathIndex index = new ChangedPathIndex(logger, f);
+            index.load();
+            return index;
+        });
+    }
+
+    public static void clear() {
+        indexes.clear();
+    }
+
+    private void load() {
+        if (!file.isFile()) {
+            return;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.US_ASCII)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lines++;
+                String[] fields = line.split(" ");
+                if (fields.length == 2 && ObjectId.isId(fields[0])) {
+                    try {
+                        filters.put(ObjectId.fromString(fields[0]), ALL.equals(fields[1]) ? ALL_DIRECTORIES : decode(fields[1]));
+                    } catch (IllegalArgumentException e) {
+                        // ignore incomplete lines of interrupted writes
+                    }
+                }
+            }
+        } catch (IOException e) {
+            logger.debug("Could not read changed path index " + file + ": " + e);
+        }
+    }
+
+    /**
+     * Returns whether the given (parsed) commit changes anything below the given directory, compared to its first
+     * parent.
+     */
+    public boolean touches(ObjectReader reader, RevCommit commit, String directory) throws IOException {
+        byte[] filter = filters.get(commit);
+        if (filter == null) {
+            filter = filter(reader, commit);
+            if (filters.putIfAbsent(commit.copy(), filter) == null) {
+                added.add(commit.copy());
+            }
+        }
+        if (filter != ALL_DIRECTORIES && !mightContain(filter, directory)) {
+            return false;
+        }
+        try (TreeWalk walk = diff(reader, commit)) {
+            walk.setFilter(AndTreeFilter.create(PathFilter.create(directory), TreeFilter.ANY_DIFF));
+            walk.setRecursive(true);
+            return walk.next();
+        }
+    }
+
+    /**
+     * Appends the filters computed since the last call to the index file, or rewrites the file with all kept filters
+     * if it would exceed twice their maximum number.
+     */
+    public synchronized void save() {
+        if (added.isEmpty()) {
+            return;
+        }
+        List<String> appended = new ArrayList<>();
+        for (AnyObjectId id; (id = added.poll()) != null; ) {
+            byte[] filter = filters.get(id);
+            if (filter != null) {
+                appended.add(line(id, filter));
+            }
+        }
+        try {
+            Files.createDirectories(file.getParentFile().toPath());
+            if (lines + appended.size() > 2 * MAX_FILTERS) {
+                StringBuilder content = new StringBuilder();
+                int kept = 0;
+                synchronized (filters) {
+                    for (Map.Entry<AnyObjectId, byte[]> e : filters.entrySet()) {
+                        content.append(line(e.getKey(), e.getValue())).append('\n');
+                        kept++;
+                    }
+                }
+                PomModelStore.writeAtomically(file, content.toString().getBytes(StandardCharsets.US_ASCII));
+                lines = kept;
+            } else {
+                Files.write(
+                        file.toPath(),
+                        appended,
+                        StandardCharsets.US_ASCII,
+                        StandardOpenOption.CREATE,
+                        StandardOpenOption.APPEND);
+                lines += appended.size();
+            }
+        } catch (IOException e) {
+            logger.debug("Could not write changed path index " + file + ": " + e);
+        }
+    }
+
+    private static String line(AnyObjectId id, byte[] filter) {
+        return id.getName() + " " + (filter == ALL_DIRECTORIES ? ALL : encode(filter));
+    }
+
+    /**
+     * Collects the changed directories by entering only the subtrees that differ from the first parent.
+     */
+    private static byte[] filter(ObjectReader reader, RevCommit commit) throws IOException {
+        Set<String> directories = new HashSet<>();
+        try (TreeWalk walk = diff(reader, commit)) {
+            walk.setFilter(TreeFilter.ANY_DIFF);
+            while (walk.next()) {
+                if (walk.isSubtree()) {
+                    directories.add(walk.getPathString());
+                    if (directories.size() > MAX_DIRECTORIES) {
+                        return ALL_DIRECTORIES;
+                    }
+                    walk.enterSubtree();
+                }
+            }
+        }
+        byte[] filter = new byte[Math.max(8, (directories.size() * BITS_PER_DIRECTORY + 7) / 8)];
+        for (String directory : directories) {
+            int hash = directory.hashCode();
+            int step = fnv1a(directory) | 1;
+            for (int i = 0; i < HASHES; i++) {
+                int bit = Math.floorMod(hash + i * step, filter.length * 8);
+                filter[bit >>> 3] |= 1 << (bit & 7);
+            }
+        }
+        return filter;
+    }
+
+    private static boolean mightContain(byte[] filter, String directory) {
+        int hash = directory.hashCode();
+        int step = fnv1a(directory) | 1;
+        for (int i = 0; i < HASHES; i++) {
+            int bit = Math.floorMod(hash + i * step, filter.length * 8);
+            if ((filter[bit >>> 3] & (1 << (bit & 7))) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static TreeWalk diff(ObjectReader reader, RevCommit commit) throws IOException {
+        ResolutionMetrics.count(ResolutionMetrics.Counter.OBJECTS_READ, 1);
+        TreeWalk walk = new TreeWalk(reader);
+        try {
+            if (commit.getParentCount() == 0) {
+                walk.addTree(new EmptyTreeIterator());
+            } else {
+                try (RevWalk revWalk = new RevWalk(reader)) {
+                    walk.addTree(revWalk.parseCommit(commit.getParent(0)).getTree());
+                }
+            }
+            walk.addTree(commit.getTree());
+            return walk;
+        } catch (IOException | RuntimeException e) {
+            walk.close();
+            throw e;
+        }
+    }
+
+    private static int fnv1a(String value) {
+        int hash = 0x811c9dc5;
+        for (int i = 0; i < value.length(); i++) {
+            hash = (hash ^ value.charAt(i)) * 0x01000193;
+        }
+        return hash;
+    }
+
+    private static String encode(byte[] filter) {
+        StringBuilder hex = new StringBuilder(filter.length * 2);
+        for (byte b : filter) {
+            hex.append(Character.forDigit((b >>> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+        return hex.toString();
+    }
+
+    private static byte[] decode(String hex) {
+        if (hex.isEmpty() || hex.length() % 2 != 0) {
+            throw new IllegalArgumentException("Invalid filter: " + hex);
+        }
+        byte[] filter = new byte[hex.length() / 2];
+        for (int i = 0; i < filter.length; i++) {
+            filter[i] = (byte) Integer.parseInt(hex.substring(2 * i, 2 * i + 2), 16);
+        }
+        return filter;
+    }
+
+}
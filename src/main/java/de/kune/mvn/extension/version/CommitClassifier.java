@@ -0,0 +1,177 @@
+package de.kune.mvn.extension.version;
+
+import de.kune.mvn.extension.version.GitDevFlow.Increment;
+
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import static java.util.stream.Collectors.toCollection;
+
+/**
+ * Classifies conventional commit messages into the {@link Increment} they imply, in a single pass over each message
+ * and without allocating: a message whose last line starts with {@code BREAKING CHANGE} is a major increment,
+ * otherwise the commit type (the part before the first colon, without scope and ignoring case) is looked up in the minor and patch
+ * types. The types are compiled once into an open-addressing hash table.
+ */
+class CommitClassifier {
+
+    static final String MINOR_TYPES_PROPERTY = "version-extension.minor-types";
+
+    static final String PATCH_TYPES_PROPERTY = "version-extension.patch-types";
+
+    private static final String DEFAULT_MINOR_TYPES = "feat";
+
+    private static final String DEFAULT_PATCH_TYPES = "fix,docs,style,refactor,perf,test,chore";
+
+    private static final String BREAKING_CHANGE = "BREAKING CHANGE";
+
+    private static volatile CommitClassifier configured;
+
+    private final String minorTypes;
+
+    private final String patchTypes;
+
+    private final String[] types;
+
+    private final Increment[] increments;
+
+    private final int mask;
+
+    private CommitClassifier(String minorTypes, String patchTypes) {
+        this.minorTypes = minorTypes;
+        this.patchTypes = patchTypes;
+        Set<String> minor = split(minorTypes);
+        Set<String> patch = split(patchTypes);
+        patch.removeAll(minor);
+        int capacity = Integer.highestOneBit(Math.max(minor.size() + patch.size(), 1) * 4);
+        this.types = new String[capacity];
+        this.increments = new Increment[capacity];
+        this.mask = capacity - 1;
+        minor.forEach(t -> put(t, Increment.MINOR));
+        patch.forEach(t -> put(t, Increment.PATCH));
+    }
+
+    public static CommitClassifier of(String minorTypes, String patchTypes) {
+        return new CommitClassifier(minorTypes, patchTypes);
+    }
+
+    /**
+     * Returns the classifier for the types configured by system properties, compiling them only when the
+     * configuration changed.
+     */
+    public static CommitClassifier configured() {
+        String minorTypes = System.getProperty(MINOR_TYPES_PROPERTY, DEFAULT_MINOR_TYPES);
+        String patchTypes = System.getProperty(PATCH_TYPES_PROPERTY, DEFAULT_PATCH_TYPES);
+        CommitClassifier classifier = configured;
+        if (classifier == null
+                || !classifier.minorTypes.equals(minorTypes)
+                || !classifier.patchTypes.equals(patchTypes)) {
+            classifier = new CommitClassifier(minorTypes, patchTypes);
+            configured = classifier;
+        }
+        return classifier;
+    }
+
+    /**
+     * Identifies the configured types, for keys of persisted results that depend on the classification.
+     */
+    public String fingerprint() {
+        return "minor=" + minorTypes + ";patch=" + patchTypes;
+    }
+
+    private static Set<String> split(String types) {
+        return Arrays.stream(types.toLowerCase().split(","))
+                .map(String::trim)
+                .filter(t -> !t.isEmpty())
+                .collect(toCollection(LinkedHashSet::new));
+    }
+
+    private void put(String type, Increment increment) {
+        int i = hash(type, type.length(), 0, 0) & mask;
+        while (types[i] != null) {
+            i = (i + 1) & mask;
+        }
+        types[i] = type;
+        increments[i] = increment;
+    }
+
+    public Increment classify(String message) {
+        if (isBreakingChange(message)) {
+            return Increment.MAJOR;
+        }
+        return typeOf(message);
+    }
+
+    /**
+     * A breaking change is indicated by a last line (ignoring one trailing line terminator) starting with
+     * {@code BREAKING CHANGE}.
+     */
+    private static boolean isBreakingChange(String message) {
+        int end = message.length();
+        if (end >= 2 && message.charAt(end - 2) == '\r' && message.charAt(end - 1) == '\n') {
+            end -= 2;
+        } else if (end >= 1 && isLineTerminator(message.charAt(end - 1))) {
+            end -= 1;
+        }
+        int start = end;
+        while (start > 0 && message.charAt(start - 1) != '\n') {
+            if (isLineTerminator(message.charAt(start - 1))) {
+                return false;
+            }
+            start--;
+        }
+        return message.startsWith(BREAKING_CHANGE, start) && start + BREAKING_CHANGE.length() <= end;
+    }
+
+    private static boolean isLineTerminator(char c) {
+        return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
+    }
+
+    /**
+     * The type is the part of the message before the first colon (or the whole message), without the part from the
+     * first opening to the last closing parenthesis.
+     */
+    private Increment typeOf(String message) {
+        int end = message.indexOf(':');
+        if (end < 0) {
+            end = message.length();
+        }
+        int open = -1;
+        int close = -1;
+        for (int i = 0; i < end; i++) {
+            char c = message.charAt(i);
+            if (isLineTerminator(c)) {
+                return Increment.NONE;
+            } else if (c == '(' && open < 0) {
+                open = i;
+            } else if (c == ')' && open >= 0) {
+                close = i;
+            }
+        }
+        int firstEnd = close < 0 ? end : open;
+        int secondStart = close < 0 ? end : close + 1;
+        int length = firstEnd + end - secondStart;
+        int i = hash(message, firstEnd, secondStart, end) & mask;
+        for (String type; (type = types[i]) != null; i = (i + 1) & mask) {
+            if (type.length() == length
+                    && type.regionMatches(true, 0, message, 0, firstEnd)
+                    && type.regionMatches(true, firstEnd, message, secondStart, end - secondStart)) {
+                return increments[i];
+            }
+        }
+        return Increment.NONE;
+    }
+
+    private static int hash(String s, int firstEnd, int secondStart, int end) {
+        int h = 0;
+        for (int i = 0; i < firstEnd; i++) {
+            h = 31 * h + Character.toLowerCase(s.charAt(i));
+        }
+        for (int i = secondStart; i < end; i++) {
+            h = 31 * h + Character.toLowerCase(s.charAt(i));
+        }
+        return h ^ (h >>> 16);
+    }
+
+}
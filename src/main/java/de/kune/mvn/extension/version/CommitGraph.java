@@ -0,0 +1,322 @@
+package de.kune.mvn.extension.version;
+
+import org.codehaus.plexus.logging.Logger;
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.util.NB;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Read-only view of the commit-graph file ({@code objects/info/commit-graph}) written by {@code git commit-graph
+ * write} or {@code git gc}. Only the chunks needed to follow parents (OID fanout, OID lookup, commit data and extra
+ * edges) are read into heap buffers, once per session and repository, and the file is closed right away, so that it is
+ * neither kept open nor mapped (which would lock it on Windows until the mapping is garbage collected); optional chunks
+ * such as changed-path filters are skipped. The graphs read are forgotten by {@link #clear()}, which
+ * {@link RepositoryRegistry#closeAll()} calls at the end of the session. Commits are addressed by their position in the
+ * graph; parent positions and generation numbers (topological levels) are read straight from the buffers, so history
+ * walks do not need to inflate any commit objects. A graph that does not contain the newest commits is still valid for the
+ * commits it contains, since all their ancestors are contained as well. Split commit-graph chains are not supported.
+ */
+class CommitGraph {
+
+    static final String COMMIT_GRAPH_PROPERTY = "version-extension.commit-graph";
+
+    private static final int SIGNATURE = 0x43475048;
+
+    private static final int CHUNK_OID_FANOUT = 0x4f494446;
+
+    private static final int CHUNK_OID_LOOKUP = 0x4f49444c;
+
+    private static final int CHUNK_COMMIT_DATA = 0x43444154;
+
+    private static final int CHUNK_EXTRA_EDGES = 0x45444745;
+
+    private static final int HEADER_SIZE = 8;
+
+    private static final int CHUNK_TABLE_ENTRY_SIZE = 12;
+
+    private static final int COMMIT_DATA_SIZE = Constants.OBJECT_ID_LENGTH + 16;
+
+    private static final int PARENT_NONE = 0x70000000;
+
+    private static final int OCTOPUS_EDGES = 0x80000000;
+
+    private static final int LAST_EDGE = 0x80000000;
+
+    private static final ConcurrentMap<File, CommitGraph> graphs = new ConcurrentHashMap<>();
+
+    private final long lastModified;
+
+    private final long length;
+
+    private final int size;
+
+    private final ByteBuffer fanout;
+
+    private final ByteBuffer lookup;
+
+    private final ByteBuffer commitData;
+
+    private final ByteBuffer extraEdges;
+
+    private CommitGraph(
+            long lastModified,
+            long length,
+            ByteBuffer fanout,
+            ByteBuffer lookup,
+            ByteBuffer commitData,
+            ByteBuffer extraEdges) {
+        this.lastModified = lastModified;
+        this.length = length;
+        this.fanout = fanout;
+        this.lookup = lookup;
+        this.commitData = commitData;
+        this.extraEdges = extraEdges;
+        this.size = fanout.getInt(255 * 4);
+    }
+
+    public static boolean isEnabled() {
+        return !"false".equalsIgnoreCase(System.getProperty(COMMIT_GRAPH_PROPERTY));
+    }
+
+    /**
+     * Returns the commit-graph of the given repository, read unless already read in this session and unchanged since,
+     * or nothing if it is disabled, missing or unreadable, or the repository is a shallow clone (whose commit-graph
+     * would list parents that are missing from the clone).
+     */
+    public static Optional<CommitGraph> configured(Logger logger, Repository repository) {
+        if (!isEnabled()) {
+            return Optional.empty();
+        }
+        try {
+            File commonDirectory = PersistentVersionCache.commonDirectory(repository.getDirectory());
+            File file = new File(commonDirectory, "objects/info/commit-graph");
+            if (!file.isFile() || new File(commonDirectory, "shallow").isFile()) {
+                return Optional.empty();
+            }
+            CommitGraph graph = graphs.get(file);
+            if (graph == null || graph.lastModified != file.lastModified() || graph.length != file.length()) {
+                graph = open(file);
+                graphs.put(file, graph);
+            }
+            return Optional.of(graph);
+        } catch (IOException e) {
+            logger.debug("Could not read commit-graph of " + repository + ": " + e);
+            return Optional.empty();
+        }
+    }
+
+    static CommitGraph open(File file) throws IOException {
+        long lastModified = file.lastModified();
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long length = channel.size();
+            ByteBuffer header = read(channel, file, 0, HEADER_SIZE);
+            if (header.getInt(0) != SIGNATURE) {
+                throw new IOException("Not a commit-graph: " + file);
+            }
+            if (header.get(4) != 1 || header.get(5) != 1 || header.get(7) != 0) {
+                throw new IOException("Unsupported commit-graph version, hash or base graphs: " + file);
+            }
+            int chunks = header.get(6) & 0xff;
+            ByteBuffer table = read(channel, file, HEADER_SIZE, (chunks + 1) * CHUNK_TABLE_ENTRY_SIZE);
+            ByteBuffer fanout = null;
+            ByteBuffer lookup = null;
+            ByteBuffer commitData = null;
+            ByteBuffer extraEdges = null;
+            for (int i = 0; i < chunks; i++) {
+                int entry = i * CHUNK_TABLE_ENTRY_SIZE;
+                long offset = table.getLong(entry + 4);
+                long end = table.getLong(entry + CHUNK_TABLE_ENTRY_SIZE + 4);
+                if (offset < 0 || end < offset || end > length || end - offset > Integer.MAX_VALUE) {
+                    throw new IOException("Invalid chunk offset in commit-graph: " + file);
+                }
+                switch (table.getInt(entry)) {
+                case CHUNK_OID_FANOUT:
+                    fanout = read(channel, file, offset, (int) (end - offset));
+                    break;
+                case CHUNK_OID_LOOKUP:
+                    lookup = read(channel, file, offset, (int) (end - offset));
+                    break;
+                case CHUNK_COMMIT_DATA:
+                    commitData = read(channel, file, offset, (int) (end - offset));
+                    break;
+                case CHUNK_EXTRA_EDGES:
+                    extraEdges = read(channel, file, offset, (int) (end - offset));
+                    break;
+                default:
+                    break;
+                }
+            }
+            if (fanout == null || lookup == null || commitData == null || fanout.limit() < 256 * 4) {
+                throw new IOException("Missing chunks in commit-graph: " + file);
+            }
+            int size = fanout.getInt(255 * 4);
+            if (size < 0
+                    || (long) size * Constants.OBJECT_ID_LENGTH > lookup.limit()
+                    || (long) size * COMMIT_DATA_SIZE > commitData.limit()) {
+                throw new IOException("Truncated commit-graph: " + file);
+            }
+            return new CommitGraph(lastModified, length, fanout, lookup, commitData, extraEdges);
+        }
+    }
+
+    private static ByteBuffer read(FileChannel channel, File file, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Truncated commit-graph: " + file);
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * Forgets all commit-graphs read in this session.
+     */
+    public static void clear() {
+        graphs.clear();
+    }
+
+    /**
+     * Returns the number of commits in the graph.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the position of the given commit in the graph, or {@code -1} if the graph does not contain it.
+     */
+    public int position(AnyObjectId id) {
+        byte[] raw = new byte[Constants.OBJECT_ID_LENGTH];
+        id.copyRawTo(raw, 0);
+        int firstByte = id.getFirstByte();
+        int low = firstByte == 0 ? 0 : fanout.getInt((firstByte - 1) * 4);
+        int high = fanout.getInt(firstByte * 4);
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            int comparison = compare(middle, raw);
+            if (comparison < 0) {
+                low = middle + 1;
+            } else if (comparison > 0) {
+                high = middle;
+            } else {
+                return middle;
+            }
+        }
+        return -1;
+    }
+
+    private int compare(int position, byte[] raw) {
+        int offset = position * Constants.OBJECT_ID_LENGTH;
+        for (int i = 0; i < Constants.OBJECT_ID_LENGTH; i += 4) {
+            int comparison = Integer.compareUnsigned(lookup.getInt(offset + i), NB.decodeInt32(raw, i));
+            if (comparison != 0) {
+                return comparison;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Returns the id of the commit at the given position.
+     */
+    public ObjectId id(int position) {
+        int offset = position * Constants.OBJECT_ID_LENGTH;
+        return ObjectId.fromRaw(new int[] {
+                lookup.getInt(offset),
+                lookup.getInt(offset + 4),
+                lookup.getInt(offset + 8),
+                lookup.getInt(offset + 12),
+                lookup.getInt(offset + 16) });
+    }
+
+    /**
+     * Returns the generation number (topological level) of the commit at the given position, which is greater than
+     * the generation numbers of all its ancestors, or {@code 0} if the graph was written without generation numbers.
+     */
+    public int generation(int position) {
+        return commitData.getInt(position * COMMIT_DATA_SIZE + Constants.OBJECT_ID_LENGTH + 8) >>> 2;
+    }
+
+    /**
+     * Returns the smallest generation number of the given commits that are contained in the graph, or
+     * {@link Integer#MAX_VALUE} if none is contained. No commit of the graph with a generation number up to this one
+     * can reach any of the given commits, except for the commit itself.
+     */
+    public int minGeneration(Collection<? extends AnyObjectId> ids) {
+        int min = Integer.MAX_VALUE;
+        for (AnyObjectId id : ids) {
+            int position = position(id);
+            if (position >= 0) {
+                min = Math.min(min, generation(position));
+            }
+        }
+        return min;
+    }
+
+    /**
+     * Returns the number of parents of the commit at the given position.
+     *
+     * @throws IOException if the graph is corrupt
+     */
+    public int parentCount(int position) throws IOException {
+        int first = commitData.getInt(position * COMMIT_DATA_SIZE + Constants.OBJECT_ID_LENGTH);
+        int second = commitData.getInt(position * COMMIT_DATA_SIZE + Constants.OBJECT_ID_LENGTH + 4);
+        if (first == PARENT_NONE) {
+            return 0;
+        } else if (second == PARENT_NONE) {
+            return 1;
+        } else if ((second & OCTOPUS_EDGES) == 0) {
+            return 2;
+        }
+        int start = second & ~OCTOPUS_EDGES;
+        for (int i = 0; ; i++) {
+            if ((extraEdges.getInt(extraEdge(start + i)) & LAST_EDGE) != 0) {
+                return i + 2;
+            }
+        }
+    }
+
+    /**
+     * Returns the position of the given parent of the commit at the given position.
+     *
+     * @throws IOException if the graph is corrupt
+     */
+    public int parent(int position, int index) throws IOException {
+        int offset = position * COMMIT_DATA_SIZE + Constants.OBJECT_ID_LENGTH;
+        int parent;
+        if (index == 0) {
+            parent = commitData.getInt(offset);
+        } else {
+            int second = commitData.getInt(offset + 4);
+            parent = (second & OCTOPUS_EDGES) == 0
+                    ? second
+                    : extraEdges.getInt(extraEdge((second & ~OCTOPUS_EDGES) + index - 1)) & ~LAST_EDGE;
+        }
+        if (parent < 0 || parent >= size) {
+            throw new IOException("Corrupt commit-graph: invalid parent " + index + " of commit " + position);
+        }
+        return parent;
+    }
+
+    private int extraEdge(int index) throws IOException {
+        if (extraEdges == null || index < 0 || (long) index * 4 + 4 > extraEdges.limit()) {
+            throw new IOException("Corrupt commit-graph: missing extra edge " + index);
+        }
+        return index * 4;
+    }
+
+}
@@ -1,32 +1,43 @@
 package de.kune.mvn.extension.version;
 
+import de.kune.mvn.extension.version.ReleaseAncestryIndex.Checkpoint;
+import de.kune.mvn.extension.version.ResolutionMetrics.Counter;
+import de.kune.mvn.extension.version.ResolutionMetrics.Phase;
 import org.apache.maven.execution.MavenSession;
 import org.apache.maven.model.Model;
 import org.apache.maven.model.building.FileModelSource;
 import org.apache.maven.model.building.ModelProcessor;
 import org.codehaus.plexus.logging.Logger;
 import org.codehaus.plexus.util.CollectionUtils;
+import org.eclipse.jgit.errors.MissingObjectException;
+import org.eclipse.jgit.lib.AnyObjectId;
 import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectReader;
 import org.eclipse.jgit.lib.Ref;
 import org.eclipse.jgit.lib.Repository;
 import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevFlag;
 import org.eclipse.jgit.revwalk.RevWalk;
-import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.CharBuffer;
+import java.nio.file.Path;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Supplier;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
-import java.util.stream.Collectors;
 
 import static java.lang.String.join;
 import static java.util.Arrays.asList;
 import static java.util.Collections.unmodifiableSet;
 import static java.util.regex.Pattern.compile;
-import static java.util.stream.Collectors.toList;
 
 public class GitDevFlow implements VersionExtension {
 
@@ -39,43 +50,174 @@ public class GitDevFlow implements VersionExtension {
     private static final Pattern hotfixBranchPattern = compile(
             "(?<type>" + join("|", hotfixBranchPrefixes) + ")-(?<base>.*?)");
 
-    private static final Pattern majorIncrementPattern = Pattern.compile("(^|\\n)BREAKING CHANGE:?.*$");
+    static final String UNKNOWN_SNAPSHOT = "unknown-SNAPSHOT";
 
-    private static final Set<String> minorIncrementTypes = unmodifiableSet(new HashSet<String>(asList("feat")));
-
-    private static final Set<String> patchIncrementTypes = unmodifiableSet(
-            new HashSet<>(asList("fix", "docs", "style", "refactor", "perf", "test", "chore")));
+    public static final String REFS_TAGS = "refs/tags/";
 
-    private static final String UNKNOWN_SNAPSHOT = "unknown-SNAPSHOT";
+    static final String TAG_PREFIX_PROPERTY = "version-extension.tag-prefix";
 
-    public static final String REFS_TAGS = "refs/tags/";
+    static final String PARALLEL_WALKS_PROPERTY = "version-extension.parallel-walks";
 
-    private final static Pattern releaseTagPattern = compile(REFS_TAGS + SemVer.versionStringPattern.pattern());
+    static final String MODULE_SCOPED_PROPERTY = "version-extension.module-scoped";
 
-    private final static Pattern hotfixReleaseTagPattern = compile(
-            REFS_TAGS + SemVer.hotfixVersionStringPattern.pattern());
+    static final String FAST_PATH_PROPERTY = "version-extension.fast-path";
 
     public static final String REFS_HEADS = "refs/heads/";
 
-    private static final ConcurrentMap<String, Optional<String>> versionsCache = new ConcurrentHashMap<>();
+    private static final int FIRST_PARENT_WALK_BATCH = 1024;
+
+    private static final int FRONTIER_SLICE_SIZE = 512;
+
+    private static final VersionsCache versionsCache = new VersionsCache();
+
+    /**
+     * Forgets all versions resolved in this JVM.
+     */
+    static void clearVersionsCache() {
+        versionsCache.clear();
+    }
 
     private static Optional<Repository> determineRepository(File gitDirectory) {
         if (gitDirectory == null || !gitDirectory.exists() || !gitDirectory.isDirectory()) {
             return Optional.empty();
         }
         try {
-            return Optional.ofNullable(new FileRepositoryBuilder().findGitDir(gitDirectory).build());
+            return RepositoryRegistry.repository(gitDirectory);
         } catch (IOException | IllegalArgumentException e) {
             return Optional.empty();
         }
     }
 
+    /**
+     * Determines the version of the given directory. Versions of working trees are looked up in the versions cache
+     * first, fingerprinted by their ref files, and only resolved (from the ref files if possible) on a miss.
+     */
     protected static String determineVersion(Logger logger, File gitDirectory) {
-        String key = determineRepository(gitDirectory).map(Object::toString).orElse(gitDirectory == null ? null : gitDirectory.toString());
-        return versionsCache.computeIfAbsent(key, d -> Optional.ofNullable(doDetermineVersion(logger, gitDirectory))).orElse(null);
+        long discovery = ResolutionMetrics.start();
+        Optional<RefFiles> refFiles = refFiles(gitDirectory);
+        ResolutionMetrics.stop(Phase.DISCOVERY, discovery);
+        if (refFiles.isPresent()) {
+            String module = modulePath(refFiles.get().getWorkTree(), gitDirectory);
+            String key = refFiles.get().getGitDirectory() + (module.isEmpty() ? "" : "#" + module);
+            String fingerprint = VersionsCache.fingerprint(refFiles.get().getGitDirectory(), refFiles.get().getWorkTree());
+            return cachedVersion(
+                    key,
+                    fingerprint,
+                    () -> determineVersionFromRefFiles(logger, refFiles.get(), gitDirectory)
+                            .orElseGet(() -> doDetermineVersion(logger, gitDirectory, module)));
+        }
+        discovery = ResolutionMetrics.start();
+        Optional<Repository> repository = determineRepository(gitDirectory);
+        ResolutionMetrics.stop(Phase.DISCOVERY, discovery);
+        String module = repository.map(r -> modulePath(r, gitDirectory)).orElse("");
+        String key = repository.map(r -> module.isEmpty() ? r.toString() : r + "#" + module)
+                .orElse(gitDirectory == null ? null : gitDirectory.toString());
+        String fingerprint = repository.map(VersionsCache::fingerprint).orElse("");
+        return cachedVersion(key, fingerprint, () -> doDetermineVersion(logger, gitDirectory, module));
+    }
+
+    /**
+     * Returns the version cached for the given key and fingerprint, or resolves and caches it on a miss.
+     */
+    private static String cachedVersion(String key, String fingerprint, Supplier<String> resolver) {
+        Optional<String> cachedVersion = versionsCache.get(key, fingerprint);
+        if (cachedVersion.isPresent()) {
+            ResolutionMetrics.count(Counter.CACHE_HITS, 1);
+            return cachedVersion.get();
+        }
+        ResolutionMetrics.count(Counter.CACHE_MISSES, 1);
+        String version = resolver.get();
+        versionsCache.put(key, fingerprint, version);
+        return version;
+    }
+
+    /**
+     * Returns the path of the given directory relative to the working tree of the given repository if module-scoped
+     * versions are enabled, otherwise (or for the root of the working tree) the empty string.
+     */
+    static String modulePath(Repository repository, File directory) {
+        return repository.isBare() ? "" : modulePath(repository.getWorkTree(), directory);
+    }
+
+    private static String modulePath(File workTreeDirectory, File directory) {
+        if (!"true".equalsIgnoreCase(System.getProperty(MODULE_SCOPED_PROPERTY))) {
+            return "";
+        }
+        try {
+            Path workTree = workTreeDirectory.getCanonicalFile().toPath();
+            Path module = directory.getCanonicalFile().toPath();
+            return module.startsWith(workTree) ? workTree.relativize(module).toString().replace(File.separatorChar, '/') : "";
+        } catch (IOException e) {
+            return "";
+        }
+    }
+
+    /**
+     * Determines the version from the ref files alone, without opening the repository, if HEAD refers to a branch whose
+     * version does not depend on the history: a snapshot branch, or a branch other than a release or hotfix branch,
+     * whose version is the release tagged at HEAD or the branch snapshot. Returns nothing if the history has to be
+     * inspected, HEAD is detached or unborn, or a release tag cannot be peeled without reading objects.
+     */
+    static Optional<String> determineVersionFromRefFiles(Logger logger, File directory) {
+        Optional<RefFiles> refFiles = refFiles(directory);
+        return refFiles.isPresent() ? determineVersionFromRefFiles(logger, refFiles.get(), directory) : Optional.empty();
+    }
+
+    private static Optional<RefFiles> refFiles(File directory) {
+        if (directory == null || !directory.isDirectory()) {
+            return Optional.empty();
+        }
+        try {
+            return RefFiles.of(directory);
+        } catch (IOException e) {
+            return Optional.empty();
+        }
+    }
+
+    private static Optional<String> determineVersionFromRefFiles(Logger logger, RefFiles refFiles, File directory) {
+        if ("false".equalsIgnoreCase(System.getProperty(FAST_PATH_PROPERTY))) {
+            return Optional.empty();
+        }
+        try {
+            long branchDetection = ResolutionMetrics.start();
+            Optional<String> branch = refFiles.headBranch();
+            ResolutionMetrics.stop(Phase.BRANCH, branchDetection);
+            if (!branch.isPresent()
+                    || releaseBranchPattern.matcher(branch.get().toLowerCase()).matches()
+                    || hotfixBranchPattern.matcher(branch.get().toLowerCase()).matches()) {
+                return Optional.empty();
+            }
+            Optional<ObjectId> head = refFiles.resolve(REFS_HEADS + branch.get());
+            if (!head.isPresent()) {
+                return Optional.empty();
+            }
+            if (isSnapshotBranch(logger, null, branch.get())) {
+                logger.info("Current branch (" + branch.get() + ") is a snapshot branch");
+                return Optional.of(branch.get() + "-SNAPSHOT");
+            }
+            String module = modulePath(refFiles.getWorkTree(), directory);
+            long tagLoading = ResolutionMetrics.start();
+            Collection<Ref> refs = refFiles.tags(TagIndex.of(null, Collections.emptyList(), module)::isVersionTag, head.get());
+            ResolutionMetrics.stop(Phase.TAGS, tagLoading);
+            ResolutionMetrics.count(Counter.TAGS_SCANNED, refs.size());
+            if (refs.stream().anyMatch(r -> !r.isPeeled())) {
+                return Optional.empty();
+            }
+            Optional<String> taggedVersion = TagIndex.of(null, refs, module).taggedVersion(head.get());
+            if (taggedVersion.isPresent()) {
+                logger.info("No commit since last release tag " + taggedVersion.get());
+                return taggedVersion;
+            }
+            logger.info("Current branch (" + branch.get() + ") is not a release branch, falling back to "
+                    + branch.get() + "-SNAPSHOT");
+            return Optional.of(branch.get() + "-SNAPSHOT");
+        } catch (IOException | IllegalArgumentException e) {
+            logger.debug("Could not determine version from ref files: " + e);
+            return Optional.empty();
+        }
     }
 
-    private static String doDetermineVersion(Logger logger, File gitDirectory) {
+    private static String doDetermineVersion(Logger logger, File gitDirectory, String module) {
         if (gitDirectory == null || !gitDirectory.exists() || !gitDirectory.isDirectory()) {
             logger.info(
                     "Working directory ("
@@ -84,11 +226,10 @@ public class GitDevFlow implements VersionExtension {
                             + UNKNOWN_SNAPSHOT);
             return UNKNOWN_SNAPSHOT;
         }
+        List<WalkTrace> traces = WalkTrace.begin();
         try {
-            Repository repository = null;
-            try {
-                repository = new FileRepositoryBuilder().findGitDir(gitDirectory).build();
-            } catch (IllegalArgumentException e) {
+            Repository repository = RepositoryRegistry.repository(gitDirectory).orElse(null);
+            if (repository == null) {
                 logger.info(
                         "Working directory ("
                                 + gitDirectory
@@ -97,17 +238,22 @@ public class GitDevFlow implements VersionExtension {
                 return UNKNOWN_SNAPSHOT;
             }
             logger.info("Working directory (" + gitDirectory + ") is a GIT repository: " + repository);
-            Ref headRefs = repository.getAllRefs().get("HEAD");
-            if (headRefs == null) {
+            Ref headRefs = repository.exactRef(Constants.HEAD);
+            if (headRefs == null || headRefs.getObjectId() == null) {
                 logger.info("No HEAD refs found, falling back to " + UNKNOWN_SNAPSHOT);
                 return UNKNOWN_SNAPSHOT;
             }
             logger.info("Head refs: " + headRefs);
+            if (!module.isEmpty()) {
+                logger.info("Determining module-scoped version of " + module);
+            }
 
-            String branch = determineBranch(logger, repository);
+            long branchDetection = ResolutionMetrics.start();
+            String branch = determineBranch(logger, repository, headRefs);
+            ResolutionMetrics.stop(Phase.BRANCH, branchDetection);
             if (!releaseBranchPattern.matcher(branch.toLowerCase()).matches() && !hotfixBranchPattern.matcher(branch.toLowerCase()).matches() && !isSnapshotBranch(logger, repository, branch)) {
-                List<Ref> tags = getTags(repository);
-                Optional<String> taggedVersion = determineTaggedVersion(tags, headRefs.getObjectId().toString());
+                TagIndex tags = TagIndex.load(repository, module);
+                Optional<String> taggedVersion = tags.taggedVersion(headRefs.getObjectId());
                 if (taggedVersion.isPresent()) {
                     logger.info("No commit since last release tag " + taggedVersion.get());
                     return taggedVersion.get();
@@ -115,9 +261,9 @@ public class GitDevFlow implements VersionExtension {
             }
 
             if (releaseBranchPattern.matcher(branch.toLowerCase()).matches()) {
-                return determineReleaseVersion(logger, repository, branch);
+                return determineCachedVersion(logger, repository, TagIndex.load(repository, module), headRefs.getObjectId(), branch, false);
             } else if (hotfixBranchPattern.matcher(branch.toLowerCase()).matches()) {
-                return determineHotfixVersion(logger, repository, branch);
+                return determineCachedVersion(logger, repository, TagIndex.load(repository, module), headRefs.getObjectId(), branch, true);
             } else if (isSnapshotBranch(logger, repository, branch)) {
                 logger.info("Current branch (" + branch + ") is a snapshot branch");
                 return branch + "-SNAPSHOT";
@@ -130,6 +276,13 @@ public class GitDevFlow implements VersionExtension {
             logger.warn(e.getClass().getSimpleName() + " caught, falling back to " + UNKNOWN_SNAPSHOT, e);
         } catch (IllegalArgumentException e) {
             logger.warn(e.getClass().getSimpleName() + " caught, falling back to " + UNKNOWN_SNAPSHOT, e);
+        } finally {
+            WalkTrace.end();
+        }
+        synchronized (traces) {
+            for (WalkTrace trace : traces) {
+                logger.warn(trace.format());
+            }
         }
         return UNKNOWN_SNAPSHOT;
     }
@@ -138,62 +291,110 @@ public class GitDevFlow implements VersionExtension {
         return branch.matches("(feature|release|hotfix|bugfix)\\-.*");
     }
 
-    private static Optional<String> determineTaggedVersion(List<Ref> tags, String commitId) {
-        return tags.stream()
-                .filter(
-                        t -> t.getObjectId().toString().equals(commitId)
-                                || t.getPeeledObjectId() != null && commitId.equals(t.getPeeledObjectId().toString()))
-                .map(t -> {
-                    Matcher m = releaseTagPattern.matcher(t.getName());
-                    Matcher h = hotfixReleaseTagPattern.matcher(t.getName());
-                    return m.matches() ? m.group("version") : h.matches() ? h.group("base") + h.group("version") : null;
-                })
-                .filter(v -> v != null)
-                .map(v -> SemVer.of((String) v))
-                .sorted(SemVer.SEM_VER_COMPARATOR.reversed())
-                .map(v -> v.getVersion())
-                .findFirst();
-    }
-
-    private static String determineBranch(Logger logger, Repository repository) throws IOException {
-        String branch = repository.getBranch();
-        String fullBranch = repository.getFullBranch();
-        if (!fullBranch.startsWith(REFS_HEADS)) {
-            logger.info("GIT repository is detached");
-            List<String> branchCandidates = repository.getAllRefs()
-                    .entrySet()
-                    .stream()
-                    .filter(e -> e.getKey().startsWith(REFS_HEADS))
-                    .filter(e -> e.getValue().getObjectId().getName().equals(fullBranch))
-                    .map(e -> e.getKey())
-                    .map(e -> e.replaceAll("^" + REFS_HEADS, ""))
-                    .collect(toList());
-            if (!branchCandidates.isEmpty()) {
-                logger.debug("Branch candidates: " + join(", ", branchCandidates));
-            }
-            if (branchCandidates.size() == 1) {
-                branch = branchCandidates.get(0);
-                logger.info("Falling back to the only matching branch (" + branch + ")");
-            } else if (branchCandidates.size() > 0) {
-                Collection<String> releaseBranchCandidates = CollectionUtils
-                        .intersection(branchCandidates, releaseBranchNames);
-                if (!releaseBranchCandidates.isEmpty()) {
-                    branch = releaseBranchCandidates.iterator().next();
-                    logger.info("Found at least one release branch candidate, continuing with " + branch);
-                } else {
-                    logger.info("No branch candidates found, continuing with " + fullBranch);
-                }
+    private static String determineBranch(Logger logger, Repository repository, Ref head) throws IOException {
+        if (head.isSymbolic()) {
+            return Repository.shortenRefName(head.getTarget().getName());
+        }
+        logger.info("GIT repository is detached");
+        String fullBranch = head.getObjectId().getName();
+        Optional<String> property = BranchHints.property();
+        if (property.isPresent() && isConsistentBranchHint(repository, head.getObjectId(), property.get(), false)) {
+            logger.info("Using configured branch (" + property.get() + ")");
+            return property.get();
+        }
+        Optional<String> hint = property.isPresent() ? Optional.empty() : BranchHints.environment();
+        if (hint.isPresent() && isConsistentBranchHint(repository, head.getObjectId(), hint.get(), true)) {
+            logger.info("Using branch hint from the build environment (" + hint.get() + ")");
+            return hint.get();
+        }
+        List<String> branchCandidates = branchesByCommit(repository).getOrDefault(head.getObjectId(), Collections.emptyList());
+        if (!branchCandidates.isEmpty()) {
+            logger.debug("Branch candidates: " + join(", ", branchCandidates));
+        }
+        String branch = fullBranch;
+        if (branchCandidates.size() == 1) {
+            branch = branchCandidates.get(0);
+            logger.info("Falling back to the only matching branch (" + branch + ")");
+        } else if (branchCandidates.size() > 0) {
+            Collection<String> releaseBranchCandidates = CollectionUtils
+                    .intersection(branchCandidates, releaseBranchNames);
+            if (!releaseBranchCandidates.isEmpty()) {
+                branch = releaseBranchCandidates.iterator().next();
+                logger.info("Found at least one release branch candidate, continuing with " + branch);
             } else {
                 logger.info("No branch candidates found, continuing with " + fullBranch);
             }
+        } else {
+            logger.info("No branch candidates found, continuing with " + fullBranch);
         }
         return branch;
     }
 
-    private static String determineHotfixVersion(Logger logger, Repository repository, String branch)
+    /**
+     * A branch hint is rejected if a local or remote-tracking branch of that name exists but points to another
+     * commit, e.g. a stale hint from an outer build. If a matching branch is required, e.g. for hints of the
+     * environment that apply to all repositories of the process, the hint is also rejected if there is no such branch.
+     */
+    private static boolean isConsistentBranchHint(Repository repository, ObjectId head, String branch, boolean required)
+            throws IOException {
+        boolean found = false;
+        for (String name : asList(REFS_HEADS + branch, Constants.R_REMOTES + Constants.DEFAULT_REMOTE_NAME + "/" + branch)) {
+            Ref ref = repository.exactRef(name);
+            if (ref != null && ref.getObjectId() != null) {
+                if (!head.equals(ref.getObjectId())) {
+                    return false;
+                }
+                found = true;
+            }
+        }
+        return found || !required;
+    }
+
+    /**
+     * Reverse index of the local branches by the commit they point to, reading {@code refs/heads/} only.
+     */
+    private static Map<ObjectId, List<String>> branchesByCommit(Repository repository) throws IOException {
+        Map<ObjectId, List<String>> branches = new HashMap<>();
+        for (Map.Entry<String, Ref> e : repository.getRefDatabase().getRefs(REFS_HEADS).entrySet()) {
+            if (e.getValue().getObjectId() != null) {
+                branches.computeIfAbsent(e.getValue().getObjectId(), id -> new ArrayList<>()).add(e.getKey());
+            }
+        }
+        return branches;
+    }
+
+    private static String determineCachedVersion(
+            Logger logger,
+            Repository repository,
+            TagIndex tags,
+            ObjectId head,
+            String branch,
+            boolean hotfix)
+            throws IOException {
+        if (!PersistentVersionCache.isEnabled() || !VersionState.shallowCommits(repository).isEmpty()) {
+            return hotfix
+                    ? determineHotfixVersion(logger, repository, tags, branch)
+                    : determineReleaseVersion(logger, repository, tags, branch);
+        }
+        PersistentVersionCache cache = PersistentVersionCache.of(logger, repository, head, branch, tags.fingerprint());
+        Optional<String> cachedVersion = cache.get();
+        if (cachedVersion.isPresent()) {
+            ResolutionMetrics.count(Counter.CACHE_HITS, 1);
+            logger.info("Using cached version: " + cachedVersion.get());
+            return cachedVersion.get();
+        }
+        ResolutionMetrics.count(Counter.CACHE_MISSES, 1);
+        String version = hotfix
+                ? determineHotfixVersion(logger, repository, tags, branch)
+                : determineReleaseVersion(logger, repository, tags, branch);
+        cache.put(version);
+        return version;
+    }
+
+    private static String determineHotfixVersion(Logger logger, Repository repository, TagIndex tags, String branch)
             throws IOException {
         logger.info("Determining version based on hotfix or support branch (" + branch + ")");
-        SemVer newVer = determineVersion(logger, repository, true);
+        SemVer newVer = determineVersion(logger, repository, tags, true);
         Matcher matcher = hotfixBranchPattern.matcher(branch);
         matcher.matches();
         String versionString = matcher.group("base") + "." + matcher.group("type") + "." + newVer.getVersion();
@@ -201,49 +402,115 @@ public class GitDevFlow implements VersionExtension {
         return versionString;
     }
 
-    private static String determineReleaseVersion(Logger logger, Repository repository, String branch)
+    private static String determineReleaseVersion(Logger logger, Repository repository, TagIndex tags, String branch)
             throws IOException {
         logger.info("Determining version based on release branch (" + branch + ")");
-        SemVer newVer = determineVersion(logger, repository, false);
+        SemVer newVer = determineVersion(logger, repository, tags, false);
         logger.info("Determined version: " + newVer.getVersion());
         return newVer.getVersion();
     }
 
-    private static SemVer determineVersion(Logger logger, Repository repository, boolean includeHotfix)
+    private static SemVer determineVersion(Logger logger, Repository repository, TagIndex tags, boolean includeHotfix)
             throws IOException {
-        List<Ref> tags = getTags(repository);
-        return determineVersion(
-                logger,
-                directCommitsAfterReleaseTag(logger, repository, tags, includeHotfix),
-                latestReachableReleaseTag(logger, repository, tags, includeHotfix));
+        ReleaseAncestryIndex ancestry = ReleaseAncestryIndex.open(logger, repository, includeHotfix, tags);
+        Set<ObjectId> shallowCommits = VersionState.shallowCommits(repository);
+        boolean versionState = !shallowCommits.isEmpty() && assumeVersionState(logger, repository, ancestry, shallowCommits);
+        WalkTrace directTrace = WalkTrace.open("First-parent", tags);
+        WalkTrace reachableTrace = WalkTrace.open("Reachable-tag", tags);
+        Checkpoint direct;
+        Checkpoint reachable;
+        if ("false".equalsIgnoreCase(System.getProperty(PARALLEL_WALKS_PROPERTY))) {
+            direct = directCommitsAfterReleaseTag(logger, repository, tags, ancestry, includeHotfix, directTrace);
+            reachable = latestReachableReleaseTag(logger, repository, tags, ancestry, includeHotfix, reachableTrace);
+        } else {
+            tags.indexed();
+            CompletableFuture<Checkpoint> latestReachable = CompletableFuture.supplyAsync(() -> {
+                try {
+                    return latestReachableReleaseTag(logger, repository, tags, ancestry, includeHotfix, reachableTrace);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            direct = directCommitsAfterReleaseTag(logger, repository, tags, ancestry, includeHotfix, directTrace);
+            reachable = await(latestReachable);
+        }
+        if (logger.isDebugEnabled()) {
+            logger.debug(directTrace.format());
+            logger.debug(reachableTrace.format());
+        }
+        if (shallowCommits.isEmpty()) {
+            ancestry.put(
+                    repository.exactRef(Constants.HEAD).getObjectId(),
+                    new Checkpoint(reachable.getRelease(), reachable.getDistance(), direct.getIncrement(), direct.getCommits()));
+            ancestry.save();
+        } else if (!versionState && reachable.getRelease() == null) {
+            logger.warn("No release tag found in shallow clone, the version may be wrong; set "
+                    + VersionState.BASE_RELEASE_PROPERTY + " or provide " + VersionState.VERSION_STATE_FILE);
+        }
+        return determineVersion(logger, direct.getIncrement(), direct.getCommits(), reachable.getRelease());
     }
 
-    private static List<Ref> getTags(Repository repository) {
-        return repository.getTags().entrySet().stream().map(Map.Entry::getValue).map(repository::peel).collect(
-                toList());
+    private static <T> T await(CompletableFuture<T> future) throws IOException {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) e.getCause()).getCause();
+            } else if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Checkpoints the commits at the shallow boundary with the configured version state, so that the history walks
+     * continue with the base release and bump level instead of the missing parents. Returns whether a version state
+     * is configured.
+     */
+    private static boolean assumeVersionState(
+            Logger logger,
+            Repository repository,
+            ReleaseAncestryIndex ancestry,
+            Set<ObjectId> shallowCommits)
+            throws IOException {
+        Optional<VersionState> state = VersionState.configured(repository);
+        if (!state.isPresent()) {
+            return false;
+        }
+        logger.info("Shallow clone, assuming base release " + state.get().getBaseRelease().getVersion()
+                + " and bump " + state.get().getBump() + " at the shallow boundary");
+        CommitClassifier classifier = CommitClassifier.configured();
+        try (RevWalk revWalk = new RevWalk(repository)) {
+            for (ObjectId commitId : shallowCommits) {
+                RevCommit commit;
+                try {
+                    commit = revWalk.parseCommit(commitId);
+                } catch (MissingObjectException e) {
+                    continue;
+                }
+                ancestry.assume(commit, state.get().checkpoint(classifier.classify(commit.getFullMessage())));
+            }
+        }
+        return true;
     }
 
-    private static SemVer determineVersion(Logger logger, List<String> commitMessagesAfterRelease, SemVer baseRelease) {
-        Set<String> commitTypes = extractTypes(commitMessagesAfterRelease);
+    private static SemVer determineVersion(Logger logger, Increment increment, long commitsAfterRelease, SemVer baseRelease) {
         SemVer newVer = baseRelease == null ? SemVer.initial() : baseRelease;
-        commitMessagesAfterRelease.stream().filter(m -> majorIncrementPattern.matcher(m).find()).count();
-        if (commitMessagesAfterRelease.stream()
-                .filter(m -> majorIncrementPattern.matcher(m).find())
-                .findAny()
-                .isPresent()) {
+        if (increment == Increment.MAJOR) {
             logger.info("Found major increment pattern(s)");
             newVer = newVer.incrementMajor(1);
-        } else if (CollectionUtils.intersection(commitTypes, minorIncrementTypes).size() > 0) {
+        } else if (increment == Increment.MINOR) {
             logger.info("Found minor increment type(s)");
             newVer = newVer.incrementMinor(1);
-        } else if (CollectionUtils.intersection(commitTypes, patchIncrementTypes).size() > 0) {
+        } else if (increment == Increment.PATCH) {
             logger.info("Found patch increment type(s)");
             newVer = newVer.incrementPatch(1);
         } else {
             logger.info("No increment type(s) found");
-            if (!commitMessagesAfterRelease.isEmpty()) {
+            if (commitsAfterRelease > 0) {
                 if (baseRelease != null) {
-                    logger.info("Found " + commitMessagesAfterRelease.size() + " unspecified commits after release, incrementing patch");
+                    logger.info("Found " + commitsAfterRelease + " unspecified commits after release, incrementing patch");
                     newVer = newVer.incrementPatch(1);
                 }
             }
@@ -252,105 +519,522 @@ public class GitDevFlow implements VersionExtension {
         return newVer;
     }
 
-    private static Set<String> extractTypes(List<String> commitMessagesAfterRelease) {
-        return commitMessagesAfterRelease.stream()
-                .map(m -> m.split(":")[0])
-                .map(m -> m.replaceAll("\\(.*\\)", ""))
-                .map(m -> m.toLowerCase())
-                .collect(Collectors.toSet());
+    /**
+     * Walks the first-parent chain from HEAD down to the last release tag or the first checkpointed commit, feeding
+     * each commit message into the classifier as it is parsed and disposing of the commit body right away. Commits are
+     * parsed by a fresh {@link RevWalk} (sharing one reader) every {@value #FIRST_PARENT_WALK_BATCH} commits, so that
+     * visited commits do not pile up in its object pool. The walk ends early at the first major increment, since no
+     * further commit can change the result; the number of commits is then a lower bound. For module-scoped tags, only
+     * the commits touching the module directory according to the {@link ChangedPathIndex} are classified and counted.
+     * Returns the accumulated increment and number of commits; release and distance of the result are not set.
+     */
+    static Checkpoint directCommitsAfterReleaseTag(
+            Logger logger,
+            Repository repository,
+            TagIndex tags,
+            ReleaseAncestryIndex ancestry,
+            boolean includeHotFix)
+            throws IOException {
+        return directCommitsAfterReleaseTag(logger, repository, tags, ancestry, includeHotFix, new WalkTrace("First-parent", tags));
     }
 
-    private static List<String> directCommitsAfterReleaseTag(
+    /**
+     * Walks the first-parent chain like
+     * {@link #directCommitsAfterReleaseTag(Logger, Repository, TagIndex, ReleaseAncestryIndex, boolean)}, recording the
+     * visited commits in the given trace.
+     */
+    static Checkpoint directCommitsAfterReleaseTag(
             Logger logger,
             Repository repository,
-            List<Ref> tags,
-            boolean includeHotFix)
+            TagIndex tags,
+            ReleaseAncestryIndex ancestry,
+            boolean includeHotFix,
+            WalkTrace trace)
             throws IOException {
-        logger.debug("Direct commits (1st parents): ");
-        RevWalk revWalk = new RevWalk(repository);
-        RevCommit head = revWalk.parseCommit(repository.findRef(Constants.HEAD).getObjectId());
-        RevCommit r = head;
-        List<String> result = new ArrayList<>();
-        while (r != null) {
-            logger.debug(determineTaggedVersion(tags, r.getId().toString()).orElse("Nothing determined..."));
-            final RevCommit q = r;
-            List<Ref> revTags = tags.stream()
-                    .filter(t -> t.getObjectId().equals(q.getId()) || q.getId().equals(t.getPeeledObjectId()))
-                    .collect(toList());
-            logger.debug(
-                    "  "
-                            + r.getId().getName()
-                            + " "
-                            + r.getShortMessage()
-                            + " (parents: "
-                            + r.getParentCount()
-                            + ") tags="
-                            + revTags);
-            Pattern pattern = includeHotFix ? hotfixReleaseTagPattern : releaseTagPattern;
-            if (revTags.stream().filter(t -> pattern.matcher(t.getName()).matches()).count() > 0) {
-                logger.debug("Stopping at tag(s) " + revTags);
-                break;
-            }
-            result.add(r.getFullMessage());
-            if (r.getParentCount() > 0) {
-                r = revWalk.parseCommit(r.getParent(0));
-            } else {
-                r = null;
+        CommitClassifier classifier = CommitClassifier.configured();
+        ChangedPathIndex changedPaths = tags.module().isEmpty() ? null : ChangedPathIndex.of(logger, repository);
+        Increment increment = Increment.NONE;
+        long commits = 0;
+        long walked = 0;
+        long parsed = 0;
+        long classified = 0;
+        long classification = 0;
+        long start = ResolutionMetrics.start();
+        try (ObjectReader reader = repository.newObjectReader()) {
+            RevWalk revWalk = new RevWalk(reader);
+            RevCommit r = revWalk.parseCommit(repository.exactRef(Constants.HEAD).getObjectId());
+            parsed++;
+            while (r != null) {
+                if (tags.releaseOf(r, includeHotFix).isPresent()) {
+                    trace.record(r, r.getParentCount(), WalkTrace.RELEASE);
+                    break;
+                }
+                Optional<Checkpoint> checkpoint = ancestry.get(r);
+                if (checkpoint.isPresent()) {
+                    trace.record(r, r.getParentCount(), WalkTrace.CHECKPOINT);
+                    increment = increment.max(checkpoint.get().getIncrement());
+                    commits += checkpoint.get().getCommits();
+                    break;
+                }
+                if (changedPaths == null || changedPaths.touches(reader, r, tags.module())) {
+                    long classificationStart = System.nanoTime();
+                    increment = increment.max(classifier.classify(r.getFullMessage()));
+                    classification += System.nanoTime() - classificationStart;
+                    classified++;
+                    commits++;
+                }
+                r.disposeBody();
+                if (increment == Increment.MAJOR) {
+                    trace.record(r, r.getParentCount(), WalkTrace.MAJOR);
+                    break;
+                }
+                trace.record(r, r.getParentCount(), WalkTrace.VISIT);
+                if (++walked % FIRST_PARENT_WALK_BATCH == 0) {
+                    revWalk = new RevWalk(reader);
+                }
+                r = r.getParentCount() > 0 ? revWalk.parseCommit(r.getParent(0)) : null;
+                parsed += r == null ? 0 : 1;
+            }
+        } finally {
+            if (changedPaths != null) {
+                changedPaths.save();
             }
+            ResolutionMetrics.stop(Phase.FIRST_PARENT_WALK, start);
+            ResolutionMetrics.add(Phase.CLASSIFICATION, classification, classified);
+            ResolutionMetrics.count(Counter.COMMITS_PARSED, parsed);
+            ResolutionMetrics.count(Counter.OBJECTS_READ, parsed);
         }
-        return result;
+        return new Checkpoint(null, -1, increment, commits);
     }
 
-    private static SemVer latestReachableReleaseTag(
+    /**
+     * Breadth-first search for the release tag nearest to HEAD across all parents. Every commit is visited once,
+     * tracked by a {@link RevFlag} instead of collected sets, and commit bodies are not retained. Checkpointed commits
+     * are not expanded; their nearest release counts at their depth plus the checkpointed distance, and the search
+     * ends once no unvisited commit can be nearer. Since a checkpoint does not tell where its release would have been
+     * found among the commits of the same depth, a tie between different releases at the nearest distance is decided
+     * by searching again without stored checkpoints, so that the result does not depend on them. The increment of the
+     * result is not set.
+     */
+    static Checkpoint latestReachableReleaseTag(
             Logger logger,
             Repository repository,
-            List<Ref> tags,
+            TagIndex tags,
+            ReleaseAncestryIndex ancestry,
             boolean includeHotFix)
             throws IOException {
-        logger.debug("All commits (all parents): ");
-        RevWalk revWalk = new RevWalk(repository);
-        RevCommit head = revWalk.parseCommit(repository.findRef(Constants.HEAD).getObjectId());
-        Set<RevCommit> r = new LinkedHashSet<>(asList(head));
-        Set<RevCommit> processed = new LinkedHashSet<>();
-        while (!r.isEmpty()) {
-            Set<RevCommit> nextParents = new LinkedHashSet<>();
-            for (final RevCommit q : r) {
-                List<Ref> revTags = tags.stream()
-                        .filter(t -> t.getObjectId().equals(q.getId()) || q.getId().equals(t.getPeeledObjectId()))
-                        .collect(toList());
-                logger.debug(
-                        "  "
-                                + q.getId().getName()
-                                + " "
-                                + q.getShortMessage()
-                                + " parents: "
-                                + q.getParentCount()
-                                + " "
-                                + revTags);
-                Pattern pattern = includeHotFix ? hotfixReleaseTagPattern : releaseTagPattern;
-                if (revTags.stream().filter(t -> pattern.matcher(t.getName()).matches()).count() > 0) {
-                    logger.debug("Stopping at tag(s) " + revTags);
-                    for (Ref revTag: revTags) {
-                        Matcher matcher = pattern.matcher(revTag.getName());
-                        if (matcher.matches()) {
-                            return SemVer.of(matcher.group("version"));
+        return latestReachableReleaseTag(logger, repository, tags, ancestry, includeHotFix, new WalkTrace("Reachable-tag", tags));
+    }
+
+    /**
+     * Searches the release tag nearest to HEAD like
+     * {@link #latestReachableReleaseTag(Logger, Repository, TagIndex, ReleaseAncestryIndex, boolean)}, recording the
+     * visited commits in the given trace.
+     */
+    static Checkpoint latestReachableReleaseTag(
+            Logger logger,
+            Repository repository,
+            TagIndex tags,
+            ReleaseAncestryIndex ancestry,
+            boolean includeHotFix,
+            WalkTrace trace)
+            throws IOException {
+        long start = ResolutionMetrics.start();
+        try {
+            Optional<CommitGraph> graph = CommitGraph.configured(logger, repository);
+            if (graph.isPresent()) {
+                try {
+                    return latestReachableReleaseTag(logger, repository, tags, ancestry, includeHotFix, graph.get(), trace);
+                } catch (IOException e) {
+                    logger.debug("Could not walk commit-graph, falling back to commit objects: " + e);
+                }
+            }
+            Checkpoint nearest = latestReachableReleaseTagOfCommits(repository, tags, ancestry, includeHotFix, true, trace);
+            return nearest != null
+                    ? nearest
+                    : latestReachableReleaseTagOfCommits(
+                            repository, tags, ancestry.withoutCheckpoints(), includeHotFix, false, trace);
+        } finally {
+            ResolutionMetrics.stop(Phase.REACHABLE_TAG_WALK, start);
+        }
+    }
+
+    /**
+     * Searches the nearest release tag across all parents, see
+     * {@link #latestReachableReleaseTag(Logger, Repository, TagIndex, ReleaseAncestryIndex, boolean)}. If exact,
+     * returns {@code null} if different releases tie at the nearest distance and one of them is checkpointed;
+     * otherwise, the first one found wins.
+     */
+    private static Checkpoint latestReachableReleaseTagOfCommits(
+            Repository repository,
+            TagIndex tags,
+            ReleaseAncestryIndex ancestry,
+            boolean includeHotFix,
+            boolean exact,
+            WalkTrace trace)
+            throws IOException {
+        long parsed = 1;
+        try (RevWalk revWalk = new RevWalk(repository)) {
+            revWalk.setRetainBody(false);
+            RevFlag seen = revWalk.newFlag("SEEN");
+            RevCommit head = revWalk.parseCommit(repository.exactRef(Constants.HEAD).getObjectId());
+            Deque<RevCommit> pending = new ArrayDeque<>();
+            head.add(seen);
+            pending.add(head);
+            Checkpoint nearest = new Checkpoint(null, -1, Increment.NONE, 0);
+            boolean tied = false;
+            for (int depth = 0; !pending.isEmpty() && isWithin(nearest, depth, exact); depth++) {
+                for (int remaining = pending.size(); remaining > 0; remaining--) {
+                    RevCommit q = pending.poll();
+                    Optional<SemVer> release = tags.releaseOf(q, includeHotFix);
+                    if (release.isPresent()) {
+                        trace.record(q, q.getParentCount(), WalkTrace.RELEASE);
+                        return ties(nearest, depth, release.get()) ? null : new Checkpoint(release.get(), depth, Increment.NONE, 0);
+                    }
+                    Optional<Checkpoint> checkpoint = ancestry.get(q);
+                    if (checkpoint.isPresent()) {
+                        trace.record(q, q.getParentCount(), WalkTrace.CHECKPOINT);
+                        Checkpoint c = checkpoint.get();
+                        if (c.getRelease() != null) {
+                            tied = ties(nearest, depth + c.getDistance(), c.getRelease())
+                                    || tied && depth + c.getDistance() >= nearest.getDistance();
+                            nearest = nearer(nearest, depth, c);
+                        }
+                        continue;
+                    }
+                    trace.record(q, q.getParentCount(), WalkTrace.VISIT);
+                    if (nearest.getRelease() != null && depth >= nearest.getDistance()) {
+                        continue;
+                    }
+                    for (RevCommit p : q.getParents()) {
+                        if (!p.has(seen)) {
+                            revWalk.parseHeaders(p);
+                            parsed++;
+                            p.add(seen);
+                            pending.add(p);
                         }
                     }
                 }
-                nextParents.addAll(asList(q.getParents()).stream().map(x -> {
+            }
+            return exact && tied ? null : nearest;
+        } finally {
+            ResolutionMetrics.count(Counter.COMMITS_PARSED, parsed);
+            ResolutionMetrics.count(Counter.OBJECTS_READ, parsed);
+        }
+    }
+
+    /**
+     * Returns whether commits at the given depth may still have the nearest release: if no release has been found yet,
+     * or it is farther; if exact, also if it is at the same distance, to find ties.
+     */
+    private static boolean isWithin(Checkpoint nearest, int depth, boolean exact) {
+        return nearest.getRelease() == null
+                || depth < nearest.getDistance()
+                || exact && depth == nearest.getDistance();
+    }
+
+    /**
+     * Returns whether the given release at the given distance ties with a different nearest release found so far.
+     */
+    private static boolean ties(Checkpoint nearest, int distance, SemVer release) {
+        return nearest.getRelease() != null
+                && distance == nearest.getDistance()
+                && !nearest.getRelease().getVersion().equals(release.getVersion());
+    }
+
+    /**
+     * Returns the nearer of the given nearest release and the release of the given checkpoint found at the given depth;
+     * the earlier found one on ties.
+     */
+    private static Checkpoint nearer(Checkpoint nearest, int depth, Checkpoint checkpoint) {
+        if (checkpoint.getRelease() == null
+                || nearest.getRelease() != null && depth + checkpoint.getDistance() >= nearest.getDistance()) {
+            return nearest;
+        }
+        return new Checkpoint(checkpoint.getRelease(), depth + checkpoint.getDistance(), Increment.NONE, 0);
+    }
+
+    /**
+     * Breadth-first search for the release tag nearest to HEAD like
+     * {@link #latestReachableReleaseTag(Logger, Repository, TagIndex, ReleaseAncestryIndex, boolean)}, following the
+     * parents recorded in the commit-graph by position. Only commits newer than the commit-graph are parsed. Commits
+     * of the graph whose generation number does not exceed the lowest one of all release commits cannot reach any
+     * release tag and are not expanded. Wide frontiers of graph commits are split into slices of
+     * {@value #FRONTIER_SLICE_SIZE} commits, visited on the common fork/join pool; of these, only the release found is
+     * recorded in the given trace.
+     */
+    static Checkpoint latestReachableReleaseTag(
+            Logger logger,
+            Repository repository,
+            TagIndex tags,
+            ReleaseAncestryIndex ancestry,
+            boolean includeHotFix,
+            CommitGraph graph,
+            WalkTrace trace)
+            throws IOException {
+        Checkpoint nearest = latestReachableReleaseTagOfGraph(repository, tags, ancestry, includeHotFix, graph, true, trace);
+        return nearest != null
+                ? nearest
+                : latestReachableReleaseTagOfGraph(
+                        repository, tags, ancestry.withoutCheckpoints(), includeHotFix, graph, false, trace);
+    }
+
+    /**
+     * Searches the nearest release tag in the commit-graph, see
+     * {@link #latestReachableReleaseTagOfCommits(Repository, TagIndex, ReleaseAncestryIndex, boolean, boolean, WalkTrace)}.
+     */
+    private static Checkpoint latestReachableReleaseTagOfGraph(
+            Repository repository,
+            TagIndex tags,
+            ReleaseAncestryIndex ancestry,
+            boolean includeHotFix,
+            CommitGraph graph,
+            boolean exact,
+            WalkTrace trace)
+            throws IOException {
+        int releaseGeneration = graph.minGeneration(tags.releaseCommits(includeHotFix));
+        // Commits of the graph are queued by position, newer commits by -1 - their index in parsedCommits
+        List<RevCommit> parsedCommits = new ArrayList<>();
+        try (RevWalk revWalk = new RevWalk(repository)) {
+            revWalk.setRetainBody(false);
+            RevFlag seen = revWalk.newFlag("SEEN");
+            BitSet seenInGraph = new BitSet(graph.size());
+            int[] pending = new int[16];
+            int pendingSize = 0;
+            int[] next = new int[16];
+            int head = graph.position(repository.exactRef(Constants.HEAD).getObjectId());
+            if (head < 0) {
+                RevCommit commit = revWalk.parseCommit(repository.exactRef(Constants.HEAD).getObjectId());
+                commit.add(seen);
+                parsedCommits.add(commit);
+                head = -1;
+            } else {
+                seenInGraph.set(head);
+            }
+            pending[pendingSize++] = head;
+            Checkpoint nearest = new Checkpoint(null, -1, Increment.NONE, 0);
+            boolean tied = false;
+            int parsedPending = parsedCommits.size();
+            for (int depth = 0; pendingSize > 0 && isWithin(nearest, depth, exact); depth++) {
+                int nextSize = 0;
+                int nextParsed = 0;
+                if (parsedPending == 0 && pendingSize >= 2 * FRONTIER_SLICE_SIZE) {
+                    List<FrontierSlice> slices = new ArrayList<>();
+                    for (int from = 0; from < pendingSize; from += FRONTIER_SLICE_SIZE) {
+                        slices.add(new FrontierSlice(
+                                graph, tags, ancestry, includeHotFix, releaseGeneration, seenInGraph,
+                                pending, from, Math.min(pendingSize, from + FRONTIER_SLICE_SIZE)));
+                    }
                     try {
-                        return revWalk.parseCommit(x.getId());
-                    } catch (IOException e) {
-                        e.printStackTrace();
-                        return null;
+                        ForkJoinTask.invokeAll(slices);
+                    } catch (UncheckedIOException e) {
+                        throw e.getCause();
+                    }
+                    for (FrontierSlice slice : slices) {
+                        if (slice.release != null) {
+                            int q = pending[slice.releaseIndex];
+                            trace.record(graph.id(q), graph.parentCount(q), WalkTrace.RELEASE);
+                            return ties(nearest, depth, slice.release)
+                                    ? null
+                                    : new Checkpoint(slice.release, depth, Increment.NONE, 0);
+                        }
+                    }
+                    for (FrontierSlice slice : slices) {
+                        Checkpoint c = slice.checkpoint;
+                        if (c != null) {
+                            tied = ties(nearest, depth + c.getDistance(), c.getRelease())
+                                    || slice.tied && (nearest.getRelease() == null
+                                            || depth + c.getDistance() <= nearest.getDistance())
+                                    || tied && depth + c.getDistance() >= nearest.getDistance();
+                            nearest = nearer(nearest, depth, c);
+                        }
+                        if (nearest.getRelease() != null && depth >= nearest.getDistance()) {
+                            continue;
+                        }
+                        for (int p = 0; p < slice.parentCount; p++) {
+                            int parent = slice.parents[p];
+                            if (!seenInGraph.get(parent)) {
+                                seenInGraph.set(parent);
+                                next = append(next, nextSize++, parent);
+                            }
+                        }
+                    }
+                    pendingSize = 0;
+                }
+                for (int i = 0; i < pendingSize; i++) {
+                    int q = pending[i];
+                    AnyObjectId id = q >= 0 ? graph.id(q) : parsedCommits.get(-1 - q);
+                    int parentCount = q >= 0 ? graph.parentCount(q) : parsedCommits.get(-1 - q).getParentCount();
+                    Optional<SemVer> release = tags.releaseOf(id, includeHotFix);
+                    if (release.isPresent()) {
+                        trace.record(id, parentCount, WalkTrace.RELEASE);
+                        return ties(nearest, depth, release.get()) ? null : new Checkpoint(release.get(), depth, Increment.NONE, 0);
+                    }
+                    Optional<Checkpoint> checkpoint = ancestry.get(id);
+                    if (checkpoint.isPresent()) {
+                        trace.record(id, parentCount, WalkTrace.CHECKPOINT);
+                        Checkpoint c = checkpoint.get();
+                        if (c.getRelease() != null) {
+                            tied = ties(nearest, depth + c.getDistance(), c.getRelease())
+                                    || tied && depth + c.getDistance() >= nearest.getDistance();
+                            nearest = nearer(nearest, depth, c);
+                        }
+                        continue;
+                    }
+                    trace.record(id, parentCount, WalkTrace.VISIT);
+                    if (nearest.getRelease() != null && depth >= nearest.getDistance()) {
+                        continue;
+                    }
+                    if (q >= 0) {
+                        int generation = graph.generation(q);
+                        if (generation != 0 && generation <= releaseGeneration) {
+                            continue;
+                        }
+                        for (int p = 0; p < parentCount; p++) {
+                            int parent = graph.parent(q, p);
+                            if (!seenInGraph.get(parent)) {
+                                seenInGraph.set(parent);
+                                next = append(next, nextSize++, parent);
+                            }
+                        }
+                    } else {
+                        for (RevCommit parent : parsedCommits.get(-1 - q).getParents()) {
+                            int position = graph.position(parent);
+                            if (position >= 0) {
+                                if (!seenInGraph.get(position)) {
+                                    seenInGraph.set(position);
+                                    next = append(next, nextSize++, position);
+                                }
+                            } else if (!parent.has(seen)) {
+                                revWalk.parseHeaders(parent);
+                                parent.add(seen);
+                                parsedCommits.add(parent);
+                                next = append(next, nextSize++, -parsedCommits.size());
+                                nextParsed++;
+                            }
+                        }
+                    }
+                }
+                int[] swap = pending;
+                pending = next;
+                next = swap;
+                pendingSize = nextSize;
+                parsedPending = nextParsed;
+            }
+            return exact && tied ? null : nearest;
+        } finally {
+            ResolutionMetrics.count(Counter.COMMITS_PARSED, parsedCommits.size());
+            ResolutionMetrics.count(Counter.OBJECTS_READ, parsedCommits.size());
+        }
+    }
+
+    private static int[] append(int[] values, int size, int value) {
+        int[] result = size < values.length ? values : Arrays.copyOf(values, size * 2);
+        result[size] = value;
+        return result;
+    }
+
+    /**
+     * Visits a slice of a breadth-first search frontier of commit-graph positions on a fork/join pool. Only reads the
+     * shared state; the results are merged in frontier order, so that the search gives the same result as a serial
+     * one: the slice stops at its first release tag, keeps its nearest checkpointed release (the first one on ties,
+     * which are recorded) and collects the unseen parents of all other commits in order.
+     */
+    private static class FrontierSlice extends RecursiveTask<FrontierSlice> {
+
+        private final CommitGraph graph;
+
+        private final TagIndex tags;
+
+        private final ReleaseAncestryIndex ancestry;
+
+        private final boolean includeHotFix;
+
+        private final int releaseGeneration;
+
+        private final BitSet seenInGraph;
+
+        private final int[] frontier;
+
+        private final int from;
+
+        private final int to;
+
+        private SemVer release;
+
+        private int releaseIndex = -1;
+
+        private Checkpoint checkpoint;
+
+        private boolean tied;
+
+        private int[] parents = new int[16];
+
+        private int parentCount;
+
+        private FrontierSlice(
+                CommitGraph graph,
+                TagIndex tags,
+                ReleaseAncestryIndex ancestry,
+                boolean includeHotFix,
+                int releaseGeneration,
+                BitSet seenInGraph,
+                int[] frontier,
+                int from,
+                int to) {
+            this.graph = graph;
+            this.tags = tags;
+            this.ancestry = ancestry;
+            this.includeHotFix = includeHotFix;
+            this.releaseGeneration = releaseGeneration;
+            this.seenInGraph = seenInGraph;
+            this.frontier = frontier;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected FrontierSlice compute() {
+            try {
+                for (int i = from; i < to; i++) {
+                    int q = frontier[i];
+                    ObjectId id = graph.id(q);
+                    Optional<SemVer> tagged = tags.releaseOf(id, includeHotFix);
+                    if (tagged.isPresent()) {
+                        release = tagged.get();
+                        releaseIndex = i;
+                        return this;
+                    }
+                    Optional<Checkpoint> c = ancestry.get(id);
+                    if (c.isPresent()) {
+                        if (c.get().getRelease() != null) {
+                            if (checkpoint == null || c.get().getDistance() < checkpoint.getDistance()) {
+                                checkpoint = c.get();
+                                tied = false;
+                            } else if (c.get().getDistance() == checkpoint.getDistance()
+                                    && !c.get().getRelease().getVersion().equals(checkpoint.getRelease().getVersion())) {
+                                tied = true;
+                            }
+                        }
+                        continue;
+                    }
+                    int generation = graph.generation(q);
+                    if (generation != 0 && generation <= releaseGeneration) {
+                        continue;
                     }
-                }).collect(toList()));
+                    for (int p = 0, count = graph.parentCount(q); p < count; p++) {
+                        int parent = graph.parent(q, p);
+                        if (!seenInGraph.get(parent)) {
+                            parents = append(parents, parentCount++, parent);
+                        }
+                    }
+                }
+                return this;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
             }
-            nextParents.removeAll(processed);
-            processed.addAll(r);
-            r = nextParents;
         }
-        return null;
+
     }
 
     @Override
@@ -370,11 +1054,211 @@ public class GitDevFlow implements VersionExtension {
         return UNKNOWN_SNAPSHOT;
     }
 
-    private static class SemVer {
+    /**
+     * Index of the release and hotfix release tags by the tagged object id and by the peeled object id, built once per
+     * resolution. Tags are filtered by name (release tag patterns and the configured tag prefix) before anything is
+     * peeled, and peeling is deferred until the index is first queried, so resolutions answered by the persistent
+     * cache never peel at all. Peeled ids recorded in {@code packed-refs} are used without opening the tag objects.
+     */
+    static class TagIndex {
 
-        public static final Comparator<SemVer> SEM_VER_COMPARATOR = Comparator.comparingInt(SemVer::getMajor)
-                .thenComparingInt(SemVer::getMinor)
-                .thenComparingInt(SemVer::getPatch);
+        private final Repository repository;
+
+        private final Collection<Ref> refs;
+
+        private final String prefix;
+
+        private final String module;
+
+        private String fingerprint;
+
+        private boolean indexed;
+
+        private final Map<AnyObjectId, List<Ref>> tags = new HashMap<>();
+
+        private final Map<AnyObjectId, SemVer> releases = new HashMap<>();
+
+        private final Map<AnyObjectId, SemVer> hotfixReleases = new HashMap<>();
+
+        private final Map<AnyObjectId, SemVer> taggedVersions = new HashMap<>();
+
+        private TagIndex(Repository repository, Collection<Ref> refs, String prefix, String module) {
+            this.repository = repository;
+            this.refs = refs;
+            this.prefix = prefix;
+            this.module = module;
+        }
+
+        /**
+         * Lists the tags of the given repository without opening any objects.
+         */
+        public static TagIndex load(Repository repository) throws IOException {
+            return load(repository, "");
+        }
+
+        /**
+         * Lists the tags of the given repository for the module at the given path (the empty string for the whole
+         * repository); release tags of a module are named {@code <tag prefix><module path>/<version>}.
+         */
+        public static TagIndex load(Repository repository, String module) throws IOException {
+            long start = ResolutionMetrics.start();
+            try {
+                return of(repository, repository.getRefDatabase().getRefs(Constants.R_TAGS).values(), module);
+            } finally {
+                ResolutionMetrics.stop(Phase.TAGS, start);
+            }
+        }
+
+        /**
+         * Indexes the given tags for the module at the given path; without a repository, all release tags must be
+         * peeled already.
+         */
+        static TagIndex of(Repository repository, Collection<Ref> refs, String module) {
+            return new TagIndex(
+                    repository,
+                    refs,
+                    System.getProperty(TAG_PREFIX_PROPERTY, "") + (module.isEmpty() ? "" : module + "/"),
+                    module);
+        }
+
+        public String module() {
+            return module;
+        }
+
+        /**
+         * Fingerprints all tags by name and unpeeled object id, and the tag prefix.
+         */
+        public String fingerprint() {
+            if (fingerprint == null) {
+                fingerprint = PersistentVersionCache.tagsFingerprint(refs, prefix);
+            }
+            return fingerprint;
+        }
+
+        /**
+         * Builds the index, peeling the matching tags that are not peeled yet; their peeled ids are remembered for
+         * {@link #determineVersionFromRefFiles(Logger, File)}.
+         */
+        TagIndex indexed() {
+            if (!indexed) {
+                indexed = true;
+                long start = ResolutionMetrics.start();
+                List<Ref> peeled = new ArrayList<>();
+                for (Ref ref : refs) {
+                    SemVer version = versionOf(ref.getName());
+                    if (version != null) {
+                        if (ref.isPeeled()) {
+                            add(ref, version);
+                        } else {
+                            Ref peeledRef = repository.peel(ref);
+                            peeled.add(peeledRef);
+                            add(peeledRef, version);
+                        }
+                    }
+                }
+                if (!peeled.isEmpty()) {
+                    RefFiles.rememberPeeled(repository, peeled);
+                }
+                ResolutionMetrics.stop(Phase.TAGS, start);
+                ResolutionMetrics.count(Counter.TAGS_SCANNED, refs.size());
+                ResolutionMetrics.count(Counter.OBJECTS_READ, peeled.size());
+            }
+            return this;
+        }
+
+        boolean isVersionTag(String name) {
+            return versionOf(name) != null;
+        }
+
+        /**
+         * Scans the version of the given tag name, or returns {@code null} if it is not a release or hotfix release
+         * tag.
+         */
+        private SemVer versionOf(String name) {
+            int start = REFS_TAGS.length() + prefix.length();
+            if (!name.startsWith(REFS_TAGS) || !name.startsWith(prefix, REFS_TAGS.length())) {
+                return null;
+            }
+            return SemVer.parse(CharBuffer.wrap(name, start, name.length()));
+        }
+
+        private void add(Ref tag, SemVer version) {
+            ObjectId objectId = tag.getObjectId();
+            ObjectId peeledObjectId = tag.getPeeledObjectId();
+            add(objectId, tag, version);
+            if (peeledObjectId != null && !peeledObjectId.equals(objectId)) {
+                add(peeledObjectId, tag, version);
+            }
+        }
+
+        /**
+         * Adds a tag with its version, parsed once per tag; the tagged version of a commit is the highest version of
+         * its tags, the first one among equal versions.
+         */
+        private void add(ObjectId id, Ref tag, SemVer version) {
+            tags.computeIfAbsent(id, i -> new ArrayList<>()).add(tag);
+            if (!version.isHotfixRelease()) {
+                releases.putIfAbsent(id, version);
+            }
+            hotfixReleases.putIfAbsent(id, version.withoutBase());
+            SemVer tagged = taggedVersions.get(id);
+            if (tagged == null || version.compareTo(tagged) > 0) {
+                taggedVersions.put(id, version);
+            }
+        }
+
+        public List<Ref> tagsOf(AnyObjectId commitId) {
+            return indexed().tags.getOrDefault(commitId, Collections.emptyList());
+        }
+
+        public Optional<SemVer> releaseOf(AnyObjectId commitId, boolean includeHotfix) {
+            indexed();
+            return Optional.ofNullable((includeHotfix ? hotfixReleases : releases).get(commitId));
+        }
+
+        public Set<AnyObjectId> releaseCommits(boolean includeHotfix) {
+            indexed();
+            return (includeHotfix ? hotfixReleases : releases).keySet();
+        }
+
+        public Optional<String> taggedVersion(AnyObjectId commitId) {
+            SemVer version = indexed().taggedVersions.get(commitId);
+            return version == null ? Optional.empty() : Optional.of(version.getVersion());
+        }
+
+    }
+
+    /**
+     * Version increment implied by commit messages, ordered from lowest to highest.
+     */
+    enum Increment {
+
+        NONE, PATCH, MINOR, MAJOR;
+
+        public Increment max(Increment other) {
+            return compareTo(other) >= 0 ? this : other;
+        }
+
+    }
+
+    /**
+     * Release version with major, minor and patch packed into a single {@code long} key, so versions compare without
+     * allocation; hotfix versions carry an interned base (ending with {@code .hotfix.} or {@code .support.}), which
+     * does not take part in comparisons.
+     */
+    static class SemVer implements Comparable<SemVer> {
+
+        public static final Comparator<SemVer> SEM_VER_COMPARATOR = SemVer::compareTo;
+
+        private static final int COMPONENT_BITS = 21;
+
+        private static final long COMPONENT_MASK = (1L << COMPONENT_BITS) - 1;
+
+        /**
+         * Key of versions with a component that does not fit into {@link #COMPONENT_BITS} bits; these are compared
+         * component by component.
+         */
+        private static final long UNPACKED = -1;
 
         public static SemVer of(String base, int major, int minor, int patch) {
             return new SemVer(base, major, minor, patch);
@@ -388,46 +1272,98 @@ public class GitDevFlow implements VersionExtension {
             return of(0, 0, 0);
         }
 
-        private static final Pattern semverPattern = compile(
-                "(?<version>(?<major>\\d+?)\\.(?<minor>\\d+?)\\.(?<patch>\\d+?))");
+        public static SemVer of(String versionString) {
+            SemVer version = parse(versionString);
+            if (version == null) {
+                throw new IllegalArgumentException(versionString + " is not a version");
+            }
+            return version;
+        }
 
-        private static final Pattern semverHotfixPattern = compile(
-                "(?<base>(.*?)\\.(" + join("|", hotfixBranchPrefixes) + ")\\.)?" + SemVer.semverPattern);
+        /**
+         * Scans a version string of the form {@code [v][<base>.hotfix.|<base>.support.]<major>.<minor>.<patch>}, or
+         * returns {@code null} if the given string is not a version.
+         */
+        static SemVer parse(CharSequence versionString) {
+            int start = versionString.length() > 0 && versionString.charAt(0) == 'v' ? 1 : 0;
+            int end = versionString.length();
+            int[] components = new int[3];
+            for (int c = 2; c >= 0; c--) {
+                int digits = end;
+                while (digits > start && isDigit(versionString.charAt(digits - 1))) {
+                    digits--;
+                }
+                if (digits == end || c > 0 && (digits == start || versionString.charAt(digits - 1) != '.')) {
+                    return null;
+                }
+                try {
+                    components[c] = Integer.parseInt(versionString.subSequence(digits, end).toString());
+                } catch (NumberFormatException e) {
+                    return null;
+                }
+                end = c > 0 ? digits - 1 : digits;
+            }
+            if (end == start) {
+                return of(components[0], components[1], components[2]);
+            }
+            String base = versionString.subSequence(start, end).toString();
+            for (String hotfixBranchPrefix : hotfixBranchPrefixes) {
+                if (base.endsWith("." + hotfixBranchPrefix + ".")) {
+                    return of(base.intern(), components[0], components[1], components[2]);
+                }
+            }
+            return null;
+        }
 
-        private static final Pattern versionStringPattern = compile("v?" + semverPattern.pattern());
-        private static final Pattern hotfixVersionStringPattern = compile("v?" + semverHotfixPattern.pattern());
+        private static boolean isDigit(char c) {
+            return c >= '0' && c <= '9';
+        }
 
-        public static SemVer of(String versionString) {
-            Matcher matcher = versionStringPattern.matcher(versionString);
-            Matcher hotfixMatcher = hotfixVersionStringPattern.matcher(versionString);
-            if (matcher.matches()) {
-                return of(
-                        Integer.parseInt(matcher.group("major")),
-                        Integer.parseInt(matcher.group("minor")),
-                        Integer.parseInt(matcher.group("patch")));
-            } else if (hotfixMatcher.matches()) {
-                return of (hotfixMatcher.group("base"),
-                        Integer.parseInt(hotfixMatcher.group("major")),
-                        Integer.parseInt(hotfixMatcher.group("minor")),
-                        Integer.parseInt(hotfixMatcher.group("patch")));
-            }
-            throw new IllegalArgumentException(versionString + " does not match " + versionStringPattern);
+        private static long key(int major, int minor, int patch) {
+            if (((major | minor | patch) & ~COMPONENT_MASK) != 0) {
+                return UNPACKED;
+            }
+            return (long) major << 2 * COMPONENT_BITS | (long) minor << COMPONENT_BITS | patch;
         }
 
         private final String base;
         private final int major, minor, patch;
+        private final long key;
 
         private SemVer(String base, int major, int minor, int patch) {
             this.base = base;
             this.major = major;
             this.minor = minor;
             this.patch = patch;
+            this.key = key(major, minor, patch);
         }
 
         private SemVer(int major, int minor, int patch) {
             this(null, major, minor, patch);
         }
 
+        /**
+         * Compares major, minor and patch, ignoring the hotfix base.
+         */
+        @Override
+        public int compareTo(SemVer other) {
+            if (key != UNPACKED && other.key != UNPACKED) {
+                return Long.compare(key, other.key);
+            }
+            int comparison = Integer.compare(major, other.major);
+            if (comparison == 0) {
+                comparison = Integer.compare(minor, other.minor);
+            }
+            return comparison != 0 ? comparison : Integer.compare(patch, other.patch);
+        }
+
+        /**
+         * Returns this version without the hotfix base.
+         */
+        public SemVer withoutBase() {
+            return base == null ? this : of(major, minor, patch);
+        }
+
         public boolean isHotfixRelease() {
             return base != null;
         }
@@ -4,13 +4,12 @@ import com.google.inject.Key;
 import org.apache.maven.execution.MavenSession;
 import org.apache.maven.model.Dependency;
 import org.apache.maven.model.DependencyManagement;
+import org.apache.maven.model.InputSource;
 import org.apache.maven.model.Model;
 import org.apache.maven.model.Parent;
 import org.apache.maven.model.building.DefaultModelProcessor;
 import org.apache.maven.model.building.ModelProcessor;
 import org.apache.maven.model.building.ModelSource2;
-import org.apache.maven.model.io.DefaultModelReader;
-import org.apache.maven.model.io.DefaultModelWriter;
 import org.apache.maven.model.io.ModelReader;
 import org.apache.maven.model.locator.ModelLocator;
 import org.apache.maven.session.scope.internal.SessionScope;
@@ -20,11 +19,10 @@ import org.codehaus.plexus.logging.Logger;
 
 import javax.inject.Inject;
 import java.io.*;
-import java.lang.reflect.InvocationTargetException;
 import java.net.URI;
-import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -41,6 +39,8 @@ public class MavenVersionExtension extends DefaultModelProcessor {
     @Requirement
     private final SessionScope sessionScope;
 
+    private final AtomicBoolean sessionWarningLogged = new AtomicBoolean();
+
     @Inject
     public MavenVersionExtension(Logger logger, SessionScope sessionScope) {
         this.logger = logger;
@@ -66,10 +66,7 @@ public class MavenVersionExtension extends DefaultModelProcessor {
     public Model read(File input, Map<String, ?> options) throws IOException {
         Optional<URI> pom = getPom(options);
         if (isLocalProject(pom)) {
-            File pomFile = new File(pom.get().getPath());
-            File versionedPomFile = getVersionPomFile(pomFile);
-            new DefaultModelWriter().write(versionedPomFile, null, enhance(new DefaultModelReader().read(pomFile, options), options));
-            return enhance(super.read(input, options), options);
+            return readLocalProject(new File(pom.get().getPath()), options, () -> super.read(input, options));
         } else {
             return super.read(input, options);
         }
@@ -79,10 +76,9 @@ public class MavenVersionExtension extends DefaultModelProcessor {
     public Model read(Reader input, Map<String, ?> options) throws IOException {
         Optional<URI> pom = getPom(options);
         if (isLocalProject(pom)) {
-            File pomFile = new File(pom.get().getPath());
-            File versionedPomFile = getVersionPomFile(pomFile);
-            new DefaultModelWriter().write(versionedPomFile, null, enhance(new DefaultModelReader().read(pomFile, options), options));
-            return enhance(super.read(input, options), options);
+            try (Reader in = input) {
+                return readLocalProject(new File(pom.get().getPath()), options, () -> super.read(in, options));
+            }
         } else {
             return super.read(input, options);
         }
@@ -92,15 +88,44 @@ public class MavenVersionExtension extends DefaultModelProcessor {
     public Model read(InputStream input, Map<String, ?> options) throws IOException {
         Optional<URI> pom = getPom(options);
         if (isLocalProject(pom)) {
-            File pomFile = new File(pom.get().getPath());
-            File versionedPomFile = getVersionPomFile(pomFile);
-            new DefaultModelWriter().write(versionedPomFile, null, enhance(new DefaultModelReader().read(pomFile, options), options));
-            return enhance(super.read(input, options), options);
+            try (InputStream in = input) {
+                return readLocalProject(new File(pom.get().getPath()), options, () -> super.read(in, options));
+            }
         } else {
             return super.read(input, options);
         }
     }
 
+    /**
+     * Returns the enhanced model of the given local POM, parsing the input Maven provided only if the POM has not been
+     * read with the same options in this session.
+     */
+    private Model readLocalProject(File pomFile, Map<String, ?> options, ModelParser parser) throws IOException {
+        return PomModelStore.get(pomFile, getReadVariant(options), f -> {
+            long start = ResolutionMetrics.start();
+            try {
+                Model model = enhance(parser.parse(), options);
+                if (!SessionPomDirectory.isEnabled()) {
+                    PomModelStore.writeIfChanged(getVersionPomFile(f), model);
+                }
+                return model;
+            } finally {
+                ResolutionMetrics.stop(ResolutionMetrics.Phase.POM_REWRITE, start);
+            }
+        }).clone();
+    }
+
+    /**
+     * Returns the options the parsed model depends on: the strictness of the parser and the input source that is
+     * referenced by the locations tracked in the model, if any.
+     */
+    private static String getReadVariant(Map<String, ?> options) {
+        Object strict = options.get(ModelReader.IS_STRICT);
+        InputSource source = (InputSource) options.get(ModelReader.INPUT_SOURCE);
+        return (strict == null || Boolean.parseBoolean(strict.toString()))
+                + (source == null ? "" : "|" + source.getModelId() + "|" + source.getLocation());
+    }
+
     public static File getVersionPomFile(File pomFile) {
         return new File(pomFile.getParentFile(), "versioned-pom.xml");
     }
@@ -134,7 +159,11 @@ public class MavenVersionExtension extends DefaultModelProcessor {
         try {
             mavenSession = ofNullable(sessionScope.scope(Key.get(MavenSession.class), null).get());
         } catch (Exception e) {
-            logger.warn("no session", e);
+            if (sessionWarningLogged.compareAndSet(false, true)) {
+                logger.warn("no session", e);
+            } else {
+                logger.debug("no session: " + e);
+            }
         }
         return mavenSession;
     }
@@ -155,29 +184,24 @@ public class MavenVersionExtension extends DefaultModelProcessor {
 
     private static final Pattern VERSION_EXTENSION_PATTERN = Pattern.compile(VERSION_EXTENSION_REGEX);
 
-    private static final VersionExtension DEFAULT_VERSION_EXTENSION = new GitDevFlow();
+    private static final String DEFAULT_VERSION_EXTENSION = "git-dev-flow";
     private static final String DEFAULT_VERSION_KEY = "[0|maven\\-version\\-extension]\\-SNAPSHOT";
     private static final Pattern DEFAULT_VERSION_KEY_PATTERN = Pattern.compile(DEFAULT_VERSION_KEY);
 
-    private static final Map<String, Class<? extends VersionExtension>> VERSION_EXTENSIONS;
-
-    static {
-        VERSION_EXTENSIONS = new HashMap<>();
-        VERSION_EXTENSIONS.put("git-dev-flow", GitDevFlow.class);
-    }
-
     private static class VersionMapper {
 
         private final Logger logger;
         private final Model model;
         private final Optional<MavenSession> mavenSession;
         private final Map<String, ?> options;
+        private final File projectDirectory;
 
         public VersionMapper(Logger logger, Model model, Optional<MavenSession> mavenSession, Map<String, ?> options) {
             this.logger = logger;
             this.model = model;
             this.mavenSession = mavenSession;
             this.options = options;
+            this.projectDirectory = getPom(options).map(p -> new File(p.getPath()).getParentFile()).orElse(null);
         }
 
         private String mapVersion(String s) {
@@ -186,35 +210,29 @@ public class MavenVersionExtension extends DefaultModelProcessor {
             }
             Matcher matcher = VERSION_EXTENSION_PATTERN.matcher(s);
             if (matcher.find()) {
-                String extensionName = matcher.group(EXTENSION_GROUP);
-                VersionExtension extension = Optional.ofNullable(VERSION_EXTENSIONS.get(extensionName))
-                        .map(VersionMapper::versionExtension)
-                        .orElseGet(() -> versionExtension(extensionName));
-                return matcher.replaceAll(extension.determineVersion(logger, model, mavenSession, options));
+                return matcher.replaceAll(determineVersion(matcher.group(EXTENSION_GROUP)));
+            } else if (DEFAULT_VERSION_KEY_PATTERN.matcher(s).find()) {
+                return DEFAULT_VERSION_KEY_PATTERN.matcher(s).replaceAll(determineVersion(DEFAULT_VERSION_EXTENSION));
             } else {
-                return DEFAULT_VERSION_KEY_PATTERN.matcher(s).replaceAll(DEFAULT_VERSION_EXTENSION.determineVersion(logger, model, mavenSession, options));
+                return s;
             }
         }
 
-        private static VersionExtension versionExtension(String className) {
-            try {
-                Class<?> versionExtensionClass = ClassLoader.getSystemClassLoader().loadClass(className);
-                if (!VersionExtension.class.isAssignableFrom(versionExtensionClass)) {
-                    throw new IllegalStateException(className + " does not implement " + VersionExtension.class);
-                }
-                return (VersionExtension) versionExtensionClass.getDeclaredConstructor(new Class[0]).newInstance(new Object[0]);
-            } catch (ClassNotFoundException | InstantiationException | IllegalAccessException | NoSuchMethodException | InvocationTargetException e) {
-                throw new IllegalStateException("Could not instatiate " + className, e);
-            }
+        private String determineVersion(String extensionName) {
+            return VersionExtensionRegistry.version(extensionName, projectDirectory, () ->
+                    (DEFAULT_VERSION_EXTENSION.equals(extensionName)
+                            ? PrecomputedVersion.of(logger, projectDirectory)
+                            : Optional.<String>empty())
+                            .orElseGet(() -> VersionExtensionRegistry.extension(logger, extensionName)
+                                    .determineVersion(logger, model, mavenSession, options)));
         }
 
-        private static VersionExtension versionExtension(Class<? extends VersionExtension> versionExtensionClass) {
-            try {
-                return versionExtensionClass.getDeclaredConstructor(new Class[0]).newInstance(new Object[0]);
-            } catch (InstantiationException | IllegalAccessException | NoSuchMethodException | InvocationTargetException e) {
-                throw new IllegalStateException("Could not instatiate " + versionExtensionClass, e);
-            }
-        }
+    }
+
+    private interface ModelParser {
+
+        Model parse() throws IOException;
 
     }
+
 }
@@ -3,19 +3,23 @@ package de.kune.mvn.extension.version;
 import org.apache.maven.AbstractMavenLifecycleParticipant;
 import org.apache.maven.MavenExecutionException;
 import org.apache.maven.execution.MavenSession;
-import org.apache.maven.model.io.DefaultModelWriter;
 import org.apache.maven.project.MavenProject;
 import org.codehaus.plexus.component.annotations.Component;
+import org.codehaus.plexus.component.annotations.Requirement;
 import org.codehaus.plexus.context.Context;
 import org.codehaus.plexus.context.ContextException;
+import org.codehaus.plexus.logging.Logger;
 import org.codehaus.plexus.personality.plexus.lifecycle.phase.Contextualizable;
 
 import java.io.File;
 import java.io.IOException;
-import java.util.Collections;
 
 @Component(role = AbstractMavenLifecycleParticipant.class)
 public class MavenVersionLifecycleParticipant extends AbstractMavenLifecycleParticipant implements Contextualizable {
+
+    @Requirement
+    private Logger logger;
+
     @Override
     public void contextualize(Context context) throws ContextException {
 
@@ -24,6 +28,18 @@ public class MavenVersionLifecycleParticipant extends AbstractMavenLifecyclePart
     @Override
     public void afterProjectsRead(MavenSession session) throws MavenExecutionException {
         super.afterProjectsRead(session);
+        exportVersion(session);
+        if (SessionPomDirectory.isEnabled()) {
+            long start = ResolutionMetrics.start();
+            try {
+                SessionPomDirectory.writeAll(logger, session);
+            } catch (IOException e) {
+                throw new MavenExecutionException("Could not write versioned POMs", e);
+            } finally {
+                ResolutionMetrics.stop(ResolutionMetrics.Phase.POM_REWRITE, start);
+            }
+            return;
+        }
         for (MavenProject p: session.getProjects()) {
             File versionedPomFile = MavenVersionExtension.getVersionPomFile(p.getModel().getPomFile());
             if (versionedPomFile.exists()) {
@@ -32,14 +48,57 @@ public class MavenVersionLifecycleParticipant extends AbstractMavenLifecyclePart
         }
     }
 
+    /**
+     * Exports the version of the reactor base directory for later invocations, if configured.
+     */
+    private void exportVersion(MavenSession session) throws MavenExecutionException {
+        String export = System.getProperty(PrecomputedVersion.EXPORT_PROPERTY);
+        if (export == null || export.trim().isEmpty() || session.getRequest().getBaseDirectory() == null) {
+            return;
+        }
+        File baseDirectory = new File(session.getRequest().getBaseDirectory());
+        File file = new File(export.trim());
+        if (!file.isAbsolute()) {
+            file = new File(baseDirectory, file.getPath());
+        }
+        String version = PrecomputedVersion.of(logger, baseDirectory)
+                .orElseGet(() -> GitDevFlow.determineVersion(logger, baseDirectory));
+        if (GitDevFlow.UNKNOWN_SNAPSHOT.equals(version)) {
+            logger.warn("Not exporting version " + version);
+            return;
+        }
+        try {
+            PrecomputedVersion.export(baseDirectory, version, file);
+            logger.info("Exported version " + version + " to " + file);
+        } catch (IOException e) {
+            throw new MavenExecutionException("Could not export version to " + file, e);
+        }
+    }
+
     @Override
     public void afterSessionStart(MavenSession session) throws MavenExecutionException {
         super.afterSessionStart(session);
+        ResolutionMetrics.reset();
+        VersionExtensionRegistry.clear();
+        if (ParallelVersionResolver.isEnabled()) {
+            File rootPom = session.getRequest().getPom() != null
+                    ? session.getRequest().getPom()
+                    : session.getRequest().getBaseDirectory() != null
+                            ? new File(session.getRequest().getBaseDirectory(), "pom.xml")
+                            : null;
+            if (rootPom != null) {
+                ParallelVersionResolver.resolve(logger, rootPom);
+            }
+        }
     }
 
     @Override
     public void afterSessionEnd(MavenSession session) throws MavenExecutionException {
         super.afterSessionEnd(session);
+        ResolutionMetrics.publish(
+                logger,
+                session.getRequest().getBaseDirectory() == null ? null : new File(session.getRequest().getBaseDirectory()));
+        SessionPomDirectory.cleanUp(logger);
         for (MavenProject p: session.getProjects()) {
             File versionedPomFile = MavenVersionExtension.getVersionPomFile(p.getModel().getPomFile());
             if (versionedPomFile.exists()) {
@@ -48,5 +107,10 @@ public class MavenVersionLifecycleParticipant extends AbstractMavenLifecyclePart
                 }
             }
         }
+        PomModelStore.clear();
+        VersionExtensionRegistry.clear();
+        ChangedPathIndex.clear();
+        PrecomputedVersion.clear();
+        RepositoryRegistry.closeAll();
     }
 }
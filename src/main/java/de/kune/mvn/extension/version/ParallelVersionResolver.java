@@ -0,0 +1,136 @@
+package de.kune.mvn.extension.version;
+
+import org.apache.maven.model.Model;
+import org.apache.maven.model.Profile;
+import org.apache.maven.model.io.DefaultModelReader;
+import org.apache.maven.model.io.ModelReader;
+import org.codehaus.plexus.logging.Logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Resolves the versions of all git repositories of the reactor modules up front and in parallel, for aggregator builds
+ * whose modules live in several repositories (submodules or sibling checkouts). The results end up in the versions
+ * cache of {@link GitDevFlow}, so that reading the models only costs cache lookups and the resolution takes as long as
+ * the slowest repository instead of the sum of all of them.
+ */
+class ParallelVersionResolver {
+
+    static final String PARALLEL_PROPERTY = "version-extension.parallel";
+
+    static final String THREADS_PROPERTY = "version-extension.parallel-threads";
+
+    private ParallelVersionResolver() {
+    }
+
+    public static boolean isEnabled() {
+        return "true".equalsIgnoreCase(System.getProperty(PARALLEL_PROPERTY));
+    }
+
+    /**
+     * Resolves the versions of all repositories of the reactor with the given root POM, waiting until all of them are
+     * resolved. Returns the resolved versions by repository directory.
+     */
+    public static Map<File, String> resolve(Logger logger, File rootPom) {
+        Set<File> repositoryDirectories = discover(logger, rootPom);
+        Map<File, String> versions = new LinkedHashMap<>();
+        if (repositoryDirectories.isEmpty()) {
+            return versions;
+        }
+        int threads = Math.min(repositoryDirectories.size(), threads());
+        logger.info("Resolving versions of " + repositoryDirectories.size() + " repositories using " + threads
+                + " threads");
+        AtomicInteger threadNumber = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "version-extension-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            Map<File, Future<String>> futures = new LinkedHashMap<>();
+            for (File directory : repositoryDirectories) {
+                futures.put(directory, executor.submit(() -> GitDevFlow.determineVersion(logger, directory)));
+            }
+            for (Map.Entry<File, Future<String>> e : futures.entrySet()) {
+                try {
+                    versions.put(e.getKey(), e.getValue().get());
+                } catch (ExecutionException ex) {
+                    logger.warn("Could not resolve version of " + e.getKey() + ": " + ex.getCause());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            executor.shutdownNow();
+        }
+        return versions;
+    }
+
+    private static int threads() {
+        try {
+            return Math.max(1, Integer.parseInt(System.getProperty(
+                    THREADS_PROPERTY,
+                    String.valueOf(Runtime.getRuntime().availableProcessors()))));
+        } catch (NumberFormatException e) {
+            return Runtime.getRuntime().availableProcessors();
+        }
+    }
+
+    /**
+     * Returns the distinct repository directories of the modules of the reactor with the given root POM, i.e. of the
+     * root project and of the modules it aggregates (including those of its profiles), recursively. Only the module
+     * declarations are read, the POMs are neither interpolated nor enhanced.
+     */
+    static Set<File> discover(Logger logger, File rootPom) {
+        Set<File> result = new LinkedHashSet<>();
+        Set<File> visited = new HashSet<>();
+        Deque<File> poms = new ArrayDeque<>();
+        poms.add(rootPom.getAbsoluteFile());
+        while (!poms.isEmpty()) {
+            File pom = poms.poll();
+            if (!visited.add(pom)) {
+                continue;
+            }
+            File directory = pom.getParentFile();
+            RepositoryRegistry.repositoryDirectory(directory).ifPresent(result::add);
+            if (!pom.isFile()) {
+                continue;
+            }
+            for (String module : modules(logger, pom)) {
+                File moduleFile = new File(directory, module.trim());
+                poms.add((moduleFile.isDirectory() ? new File(moduleFile, "pom.xml") : moduleFile).toPath().normalize()
+                        .toFile());
+            }
+        }
+        return result;
+    }
+
+    private static Set<String> modules(Logger logger, File pom) {
+        Set<String> modules = new LinkedHashSet<>();
+        try {
+            Model model = new DefaultModelReader().read(pom, Collections.singletonMap(ModelReader.IS_STRICT, false));
+            modules.addAll(model.getModules());
+            for (Profile profile : model.getProfiles()) {
+                modules.addAll(profile.getModules());
+            }
+        } catch (IOException e) {
+            logger.warn("Could not read modules of " + pom + ": " + e);
+        }
+        return modules;
+    }
+
+}
@@ -0,0 +1,187 @@
+package de.kune.mvn.extension.version;
+
+import org.codehaus.plexus.logging.Logger;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.lib.Repository;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.CodeSource;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Optional;
+
+/**
+ * Version cache persisted under the git common directory, so that it survives the JVM and is shared by all linked
+ * worktrees of a repository. Entries are keyed by the HEAD commit, the branch, a fingerprint of all tags, the commit
+ * types and the version of this extension; each entry is a small file written atomically.
+ */
+class PersistentVersionCache {
+
+    static final String CACHE_PROPERTY = "version-extension.cache";
+
+    static final String STATE_DIRECTORY = "maven-version-extension";
+
+    private static final String VERSIONS_DIRECTORY = "versions";
+
+    private static final int MAX_ENTRIES = 512;
+
+    private static final String EXTENSION_VERSION = determineExtensionVersion();
+
+    private final Logger logger;
+
+    private final File entry;
+
+    private PersistentVersionCache(Logger logger, File entry) {
+        this.logger = logger;
+        this.entry = entry;
+    }
+
+    public static boolean isEnabled() {
+        return !"false".equalsIgnoreCase(System.getProperty(CACHE_PROPERTY));
+    }
+
+    public static PersistentVersionCache of(Logger logger, Repository repository, ObjectId head, String branch)
+            throws IOException {
+        return of(logger, repository, head, branch, tagsFingerprint(repository));
+    }
+
+    public static PersistentVersionCache of(
+            Logger logger,
+            Repository repository,
+            ObjectId head,
+            String branch,
+            String tagsFingerprint) throws IOException {
+        String key = sha1(
+                head.getName(),
+                branch,
+                tagsFingerprint,
+                CommitClassifier.configured().fingerprint(),
+                EXTENSION_VERSION);
+        return new PersistentVersionCache(
+                logger,
+                new File(new File(stateDirectory(repository), VERSIONS_DIRECTORY), key));
+    }
+
+    public Optional<String> get() {
+        if (!entry.isFile()) {
+            return Optional.empty();
+        }
+        try {
+            String version = new String(Files.readAllBytes(entry.toPath()), StandardCharsets.UTF_8).trim();
+            return version.isEmpty() ? Optional.empty() : Optional.of(version);
+        } catch (IOException e) {
+            logger.debug("Could not read cached version " + entry + ": " + e);
+            return Optional.empty();
+        }
+    }
+
+    public void put(String version) {
+        File directory = entry.getParentFile();
+        try {
+            Files.createDirectories(directory.toPath());
+            Path tmp = Files.createTempFile(directory.toPath(), entry.getName(), ".tmp");
+            Files.write(tmp, version.getBytes(StandardCharsets.UTF_8));
+            Files.move(tmp, entry.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            evictOldest(directory);
+        } catch (IOException e) {
+            logger.debug("Could not write cached version " + entry + ": " + e);
+        }
+    }
+
+    private static void evictOldest(File directory) {
+        File[] entries = directory.listFiles();
+        if (entries != null && entries.length > MAX_ENTRIES) {
+            Arrays.sort(entries, Comparator.comparingLong(File::lastModified));
+            for (int i = 0; i < entries.length - MAX_ENTRIES; i++) {
+                entries[i].delete();
+            }
+        }
+    }
+
+    /**
+     * Returns the directory holding the persistent state of this extension, located in the git common directory of
+     * the given repository.
+     */
+    static File stateDirectory(Repository repository) throws IOException {
+        return new File(commonDirectory(repository.getDirectory()), STATE_DIRECTORY);
+    }
+
+    /**
+     * Returns the git common directory; for a linked worktree that is the directory referenced by its
+     * {@code commondir} file, otherwise the git directory itself.
+     */
+    static File commonDirectory(File gitDirectory) throws IOException {
+        File commonDirFile = new File(gitDirectory, "commondir");
+        if (!commonDirFile.isFile()) {
+            return gitDirectory;
+        }
+        String commonDir = new String(Files.readAllBytes(commonDirFile.toPath()), StandardCharsets.UTF_8).trim();
+        File commonDirectory = new File(commonDir);
+        return (commonDirectory.isAbsolute() ? commonDirectory : new File(gitDirectory, commonDir)).getCanonicalFile();
+    }
+
+    /**
+     * Fingerprints all tags of the given repository and the configured tag prefix.
+     */
+    static String tagsFingerprint(Repository repository) throws IOException {
+        return GitDevFlow.TagIndex.load(repository).fingerprint();
+    }
+
+    /**
+     * Fingerprints the given tags by name and (unpeeled) object id, as recorded in loose refs and
+     * {@code packed-refs}, and the tag prefix. No objects are opened.
+     */
+    static String tagsFingerprint(Collection<Ref> tags, String prefix) {
+        MessageDigest digest = sha1();
+        for (Ref tag : tags) {
+            digest.update(tag.getName().getBytes(StandardCharsets.UTF_8));
+            if (tag.getObjectId() != null) {
+                digest.update(tag.getObjectId().getName().getBytes(StandardCharsets.US_ASCII));
+            }
+        }
+        digest.update(prefix.getBytes(StandardCharsets.UTF_8));
+        return ObjectId.fromRaw(digest.digest()).getName();
+    }
+
+    static String sha1(String... parts) {
+        MessageDigest digest = sha1();
+        for (String part : parts) {
+            digest.update(String.valueOf(part).getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+        }
+        return ObjectId.fromRaw(digest.digest()).getName();
+    }
+
+    private static MessageDigest sha1() {
+        try {
+            return MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String determineExtensionVersion() {
+        String implementationVersion = GitDevFlow.class.getPackage().getImplementationVersion();
+        try {
+            CodeSource codeSource = GitDevFlow.class.getProtectionDomain().getCodeSource();
+            if (codeSource != null && codeSource.getLocation() != null) {
+                File location = new File(codeSource.getLocation().toURI());
+                return implementationVersion + "@" + location.getName() + ":" + location.lastModified();
+            }
+        } catch (URISyntaxException | IllegalArgumentException | SecurityException e) {
+            // fall through
+        }
+        return String.valueOf(implementationVersion);
+    }
+
+}
@@ -0,0 +1,184 @@
+package de.kune.mvn.extension.version;
+
+import org.apache.maven.model.Model;
+import org.apache.maven.model.io.DefaultModelWriter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Session-level store of enhanced POM models, keyed by POM path and read variant (e.g. the strictness of the parser)
+ * and validated against the modification time and size of the POM and the {@link VersionsCache#fingerprint(File,
+ * File) fingerprint} of the repository it belongs to, since the enhanced model depends on the resolved version. Each POM is parsed and enhanced once per session
+ * and variant no matter how often, or by how many threads concurrently, it is read, and its versioned POM is only
+ * written when the content changed.
+ */
+class PomModelStore {
+
+    private static final ConcurrentMap<Key, Entry> entries = new ConcurrentHashMap<>();
+
+    private static final ConcurrentMap<File, Entry> latest = new ConcurrentHashMap<>();
+
+    private PomModelStore() {
+    }
+
+    /**
+     * Returns the enhanced model of the given POM, loading it only if it has not been loaded in this session or the
+     * file or its repository changed since. The returned model is shared and must not be modified.
+     */
+    public static Model get(File pomFile, ModelLoader loader) throws IOException {
+        return get(pomFile, "", loader);
+    }
+
+    /**
+     * Returns the enhanced model of the given POM read as the given variant, loading it only if it has not been loaded
+     * as that variant in this session or the file or its repository changed since. Concurrent reads of the same POM and variant load it
+     * once. The returned model is shared and must not be modified.
+     */
+    public static Model get(File pomFile, Object variant, ModelLoader loader) throws IOException {
+        File file = pomFile.getAbsoluteFile();
+        long lastModified = file.lastModified();
+        long length = file.length();
+        String repositoryState = repositoryState(file.getParentFile());
+        Entry entry = entries.compute(new Key(file, variant),
+                (k, e) -> e != null && e.lastModified == lastModified && e.length == length
+                        && e.repositoryState.equals(repositoryState)
+                        ? e
+                        : new Entry(lastModified, length, repositoryState));
+        Model model = entry.load(file, loader);
+        latest.put(file, entry);
+        return model;
+    }
+
+    private static String repositoryState(File directory) {
+        try {
+            return RefFiles.of(directory)
+                    .map(r -> VersionsCache.fingerprint(r.getGitDirectory(), r.getWorkTree()))
+                    .orElse("");
+        } catch (IOException e) {
+            return "";
+        }
+    }
+
+    /**
+     * Returns the enhanced model of the given POM if it has been loaded in this session, as the variant read last.
+     */
+    public static Optional<Model> get(File pomFile) {
+        return Optional.ofNullable(latest.get(pomFile.getAbsoluteFile())).map(e -> e.model);
+    }
+
+    /**
+     * Writes the model to the given file unless the file already has the same content.
+     *
+     * @return whether the file was written
+     */
+    public static boolean writeIfChanged(File file, Model model) throws IOException {
+        byte[] content = serialize(model);
+        if (file.isFile() && file.length() == content.length
+                && Arrays.equals(content, Files.readAllBytes(file.toPath()))) {
+            return false;
+        }
+        writeAtomically(file, content);
+        return true;
+    }
+
+    /**
+     * Writes the content to a temporary file next to the given file and renames it, so that readers never see a
+     * partially written file.
+     */
+    static void writeAtomically(File file, byte[] content) throws IOException {
+        Path directory = file.getAbsoluteFile().getParentFile().toPath();
+        Path tmp = Files.createTempFile(directory, file.getName(), ".tmp");
+        try {
+            Files.write(tmp, content);
+            Files.move(tmp, file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    static byte[] serialize(Model model) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new DefaultModelWriter().write(out, null, model);
+        return out.toByteArray();
+    }
+
+    public static void clear() {
+        entries.clear();
+        latest.clear();
+    }
+
+    interface ModelLoader {
+
+        Model load(File pomFile) throws IOException;
+
+    }
+
+    private static class Key {
+
+        private final File file;
+
+        private final Object variant;
+
+        private Key(File file, Object variant) {
+            this.file = file;
+            this.variant = Objects.requireNonNull(variant);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return file.equals(key.file) && variant.equals(key.variant);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * file.hashCode() + variant.hashCode();
+        }
+
+    }
+
+    private static class Entry {
+
+        private volatile Model model;
+
+        private final long lastModified;
+
+        private final long length;
+
+        private final String repositoryState;
+
+        private Entry(long lastModified, long length, String repositoryState) {
+            this.lastModified = lastModified;
+            this.length = length;
+            this.repositoryState = repositoryState;
+        }
+
+        /**
+         * Loads the model unless already loaded; a failed load is retried by the next reader.
+         */
+        private synchronized Model load(File pomFile, ModelLoader loader) throws IOException {
+            if (model == null) {
+                model = Objects.requireNonNull(loader.load(pomFile));
+            }
+            return model;
+        }
+
+    }
+
+}
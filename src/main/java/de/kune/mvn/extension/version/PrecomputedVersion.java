@@ -0,0 +1,155 @@
+package de.kune.mvn.extension.version;
+
+import org.codehaus.plexus.logging.Logger;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Ref;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Version resolved once by an earlier Maven invocation on the same checkout and handed to later invocations, so that
+ * these do not open the repository at all. The version is exported together with the {@code HEAD} commit and branch it
+ * was resolved for and the fingerprint of the tags (as used by {@link PersistentVersionCache}), as {@code NAME=value}
+ * lines that are both a properties file and a shell script defining the {@value #VERSION_VARIABLE},
+ * {@value #HEAD_VARIABLE}, {@value #BRANCH_VARIABLE} and {@value #TAGS_VARIABLE} variables. It is only used while
+ * {@code HEAD} still refers to that commit and branch and the tags are unchanged, as read from the ref files, and never
+ * for module-scoped versions. Checks are memoized per working tree until {@link #clear()}.
+ */
+class PrecomputedVersion {
+
+    static final String PRECOMPUTED_PROPERTY = "version-extension.precomputed";
+
+    static final String EXPORT_PROPERTY = "version-extension.export";
+
+    static final String VERSION_VARIABLE = "VERSION_EXTENSION_VERSION";
+
+    static final String HEAD_VARIABLE = "VERSION_EXTENSION_HEAD";
+
+    static final String BRANCH_VARIABLE = "VERSION_EXTENSION_BRANCH";
+
+    static final String TAGS_VARIABLE = "VERSION_EXTENSION_TAGS";
+
+    private static final Map<File, Optional<String>> versions = new ConcurrentHashMap<>();
+
+    private PrecomputedVersion() {
+    }
+
+    public static Optional<String> of(Logger logger, File directory) {
+        return of(logger, directory, System::getenv);
+    }
+
+    /**
+     * Returns the precomputed version of the repository the given directory belongs to: the one of the file configured
+     * by {@value #PRECOMPUTED_PROPERTY}, otherwise the one of the given environment, if it was resolved for the
+     * current {@code HEAD}.
+     */
+    static Optional<String> of(Logger logger, File directory, Function<String, String> environment) {
+        if (directory == null || "true".equalsIgnoreCase(System.getProperty(GitDevFlow.MODULE_SCOPED_PROPERTY))) {
+            return Optional.empty();
+        }
+        String file = System.getProperty(PRECOMPUTED_PROPERTY);
+        if ((file == null || file.trim().isEmpty()) && environment.apply(VERSION_VARIABLE) == null) {
+            return Optional.empty();
+        }
+        try {
+            Optional<RefFiles> refFiles = RefFiles.of(directory);
+            if (!refFiles.isPresent()) {
+                return Optional.empty();
+            }
+            return versions.computeIfAbsent(refFiles.get().getWorkTree(), w -> {
+                try {
+                    return verified(logger, refFiles.get(), file == null || file.trim().isEmpty()
+                            ? environment
+                            : load(new File(file.trim())));
+                } catch (IOException e) {
+                    logger.warn("Could not read precomputed version: " + e);
+                    return Optional.empty();
+                }
+            });
+        } catch (IOException e) {
+            logger.warn("Could not read precomputed version: " + e);
+            return Optional.empty();
+        }
+    }
+
+    private static Optional<String> verified(Logger logger, RefFiles refFiles, Function<String, String> precomputed)
+            throws IOException {
+        String version = precomputed.apply(VERSION_VARIABLE);
+        String head = precomputed.apply(HEAD_VARIABLE);
+        String branch = precomputed.apply(BRANCH_VARIABLE);
+        String tags = precomputed.apply(TAGS_VARIABLE);
+        if (version == null || version.trim().isEmpty() || head == null || !ObjectId.isId(head.trim())
+                || tags == null) {
+            logger.warn("Ignoring incomplete precomputed version, " + VERSION_VARIABLE + ", " + HEAD_VARIABLE
+                    + " and " + TAGS_VARIABLE + " are required");
+            return Optional.empty();
+        }
+        Optional<ObjectId> currentHead = refFiles.head();
+        String currentBranch = refFiles.headBranch().orElse("");
+        if (!currentHead.isPresent()
+                || !currentHead.get().equals(ObjectId.fromString(head.trim()))
+                || !currentBranch.equals(branch == null ? "" : branch.trim())) {
+            logger.info("Ignoring precomputed version " + version.trim() + ", it was resolved for another HEAD");
+            return Optional.empty();
+        }
+        if (!tagsFingerprint(refFiles, currentHead.get()).equals(tags.trim())) {
+            logger.info("Ignoring precomputed version " + version.trim() + ", the tags changed since");
+            return Optional.empty();
+        }
+        logger.info("Using precomputed version " + version.trim() + " of " + refFiles.getWorkTree());
+        return Optional.of(version.trim());
+    }
+
+    private static Function<String, String> load(File file) throws IOException {
+        Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(file.toPath())) {
+            properties.load(in);
+        }
+        return properties::getProperty;
+    }
+
+    /**
+     * Exports the given version, resolved for the current {@code HEAD} of the repository the given directory belongs
+     * to, to the given file.
+     */
+    public static void export(File directory, String version, File file) throws IOException {
+        Optional<RefFiles> refFiles = RefFiles.of(directory);
+        Optional<ObjectId> head = refFiles.isPresent() ? refFiles.get().head() : Optional.empty();
+        if (!head.isPresent()) {
+            throw new IOException(directory + " is not a git working tree with a HEAD commit");
+        }
+        String content = VERSION_VARIABLE + "=" + version + "\n"
+                + HEAD_VARIABLE + "=" + head.get().getName() + "\n"
+                + BRANCH_VARIABLE + "=" + refFiles.get().headBranch().orElse("") + "\n"
+                + TAGS_VARIABLE + "=" + tagsFingerprint(refFiles.get(), head.get()) + "\n";
+        Files.createDirectories(file.getAbsoluteFile().getParentFile().toPath());
+        PomModelStore.writeAtomically(file, content.getBytes(StandardCharsets.ISO_8859_1));
+    }
+
+    /**
+     * Fingerprints the tags like {@link GitDevFlow.TagIndex#fingerprint()} does for the whole repository, from the ref
+     * files.
+     */
+    private static String tagsFingerprint(RefFiles refFiles, ObjectId head) throws IOException {
+        List<Ref> tags = new ArrayList<>(refFiles.tags(name -> true, head));
+        tags.sort(Comparator.comparing(Ref::getName));
+        return PersistentVersionCache.tagsFingerprint(tags, System.getProperty(GitDevFlow.TAG_PREFIX_PROPERTY, ""));
+    }
+
+    public static void clear() {
+        versions.clear();
+    }
+
+}
@@ -0,0 +1,269 @@
+package de.kune.mvn.extension.version;
+
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectIdRef;
+import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.lib.Repository;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Predicate;
+
+/**
+ * Plain reader of {@code HEAD}, {@code packed-refs} and loose ref files, for resolving versions without opening a JGit
+ * repository or any objects. Annotated tags are peeled by the {@code ^} lines of {@code packed-refs} or by the
+ * {@value #PEELED_TAGS_FILE} file, to which the ids of peeled loose tags are appended whenever the full engine peels
+ * them; tag objects are immutable, so its entries never become stale.
+ */
+class RefFiles {
+
+    static final String PEELED_TAGS_FILE = "peeled-tags";
+
+    private static final String SYMBOLIC_REF_PREFIX = "ref: ";
+
+    private static final String GITDIR_PREFIX = "gitdir: ";
+
+    private final File workTree;
+
+    private final File gitDirectory;
+
+    private final File commonDirectory;
+
+    private RefFiles(File workTree, File gitDirectory, File commonDirectory) {
+        this.workTree = workTree;
+        this.gitDirectory = gitDirectory;
+        this.commonDirectory = commonDirectory;
+    }
+
+    /**
+     * Returns the ref files of the non-bare repository the given directory belongs to, following {@code gitdir:} files
+     * of linked worktrees and submodules.
+     */
+    public static Optional<RefFiles> of(File directory) throws IOException {
+        Optional<File> workTree = RepositoryRegistry.repositoryDirectory(directory);
+        if (!workTree.isPresent()) {
+            return Optional.empty();
+        }
+        File dotGit = new File(workTree.get(), Constants.DOT_GIT);
+        File gitDirectory;
+        if (dotGit.isDirectory()) {
+            gitDirectory = dotGit;
+        } else if (dotGit.isFile()) {
+            String gitdir = read(dotGit);
+            if (gitdir == null || !gitdir.startsWith(GITDIR_PREFIX)) {
+                return Optional.empty();
+            }
+            File target = new File(gitdir.substring(GITDIR_PREFIX.length()).trim());
+            gitDirectory = target.isAbsolute() ? target : new File(workTree.get(), target.getPath());
+        } else {
+            return Optional.empty();
+        }
+        return Optional.of(new RefFiles(
+                workTree.get(),
+                gitDirectory,
+                PersistentVersionCache.commonDirectory(gitDirectory)));
+    }
+
+    public File getWorkTree() {
+        return workTree;
+    }
+
+    public File getGitDirectory() {
+        return gitDirectory;
+    }
+
+    /**
+     * Returns the branch {@code HEAD} refers to, or nothing if {@code HEAD} is detached or missing.
+     */
+    public Optional<String> headBranch() throws IOException {
+        String head = read(new File(gitDirectory, Constants.HEAD));
+        if (head == null || !head.startsWith(SYMBOLIC_REF_PREFIX + Constants.R_HEADS)) {
+            return Optional.empty();
+        }
+        return Optional.of(head.substring((SYMBOLIC_REF_PREFIX + Constants.R_HEADS).length()).trim());
+    }
+
+    /**
+     * Returns the commit {@code HEAD} refers to, directly or through a branch, or nothing if it is unborn or missing.
+     */
+    public Optional<ObjectId> head() throws IOException {
+        String head = read(new File(gitDirectory, Constants.HEAD));
+        if (head == null) {
+            return Optional.empty();
+        } else if (head.startsWith(SYMBOLIC_REF_PREFIX)) {
+            return resolve(head.substring(SYMBOLIC_REF_PREFIX.length()).trim());
+        }
+        return ObjectId.isId(head) ? Optional.of(ObjectId.fromString(head)) : Optional.empty();
+    }
+
+    /**
+     * Returns the object id of the given ref: the loose ref file of the worktree or the common directory, or the
+     * entry of {@code packed-refs}. Returns nothing if the ref does not exist or is symbolic.
+     */
+    public Optional<ObjectId> resolve(String name) throws IOException {
+        for (File directory : new File[] { gitDirectory, commonDirectory }) {
+            String id = read(new File(directory, name));
+            if (id != null) {
+                return ObjectId.isId(id) ? Optional.of(ObjectId.fromString(id)) : Optional.empty();
+            }
+        }
+        Ref packed = packedRefs(name::equals).get(name);
+        return packed == null ? Optional.empty() : Optional.of(packed.getObjectId());
+    }
+
+    /**
+     * Returns the tags with names accepted by the given predicate. Tags are peeled where this is possible without
+     * reading objects: by {@code packed-refs}, by the remembered peeled tags, or because they point to the given
+     * commit (and thus are not annotated). All other tags are returned unpeeled.
+     */
+    public Collection<Ref> tags(Predicate<String> names, ObjectId commit) throws IOException {
+        Map<String, Ref> tags = packedRefs(n -> n.startsWith(Constants.R_TAGS) && names.test(n));
+        List<File> directories = new ArrayList<>();
+        directories.add(new File(commonDirectory, Constants.R_TAGS));
+        while (!directories.isEmpty()) {
+            File[] files = directories.remove(directories.size() - 1).listFiles();
+            if (files == null) {
+                continue;
+            }
+            for (File file : files) {
+                if (file.isDirectory()) {
+                    directories.add(file);
+                    continue;
+                }
+                String name = Constants.R_TAGS
+                        + new File(commonDirectory, Constants.R_TAGS).toPath().relativize(file.toPath()).toString()
+                                .replace(File.separatorChar, '/');
+                String id = names.test(name) ? read(file) : null;
+                if (id == null || !ObjectId.isId(id)) {
+                    continue;
+                }
+                tags.put(name, new ObjectIdRef.Unpeeled(Ref.Storage.LOOSE, name, ObjectId.fromString(id)));
+            }
+        }
+        Map<ObjectId, ObjectId> peeledTags = null;
+        for (Map.Entry<String, Ref> tag : tags.entrySet()) {
+            Ref ref = tag.getValue();
+            if (ref.isPeeled()) {
+                continue;
+            }
+            if (peeledTags == null && !ref.getObjectId().equals(commit)) {
+                peeledTags = peeledTags(new File(commonDirectory, PersistentVersionCache.STATE_DIRECTORY));
+            }
+            ObjectId peeled = ref.getObjectId().equals(commit) ? commit : peeledTags.get(ref.getObjectId());
+            if (peeled != null) {
+                tag.setValue(peeled(ref.getStorage(), ref.getName(), ref.getObjectId(), peeled));
+            }
+        }
+        return tags.values();
+    }
+
+    private Map<String, Ref> packedRefs(Predicate<String> names) throws IOException {
+        Map<String, Ref> refs = new LinkedHashMap<>();
+        File file = new File(commonDirectory, Constants.PACKED_REFS);
+        if (!file.isFile()) {
+            return refs;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            boolean peeledTags = false;
+            boolean fullyPeeled = false;
+            String line;
+            String last = null;
+            ObjectId lastId = null;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith("# pack-refs with:")) {
+                    fullyPeeled = line.contains(" fully-peeled");
+                    peeledTags = fullyPeeled || line.contains(" peeled");
+                } else if (line.startsWith("^")) {
+                    if (last != null && ObjectId.isId(line.substring(1).trim())) {
+                        refs.put(last, peeled(
+                                Ref.Storage.PACKED,
+                                last,
+                                lastId,
+                                ObjectId.fromString(line.substring(1).trim())));
+                    }
+                } else if (line.length() > Constants.OBJECT_ID_STRING_LENGTH + 1
+                        && line.charAt(Constants.OBJECT_ID_STRING_LENGTH) == ' ') {
+                    String name = line.substring(Constants.OBJECT_ID_STRING_LENGTH + 1);
+                    last = null;
+                    if (names.test(name) && ObjectId.isId(line.substring(0, Constants.OBJECT_ID_STRING_LENGTH))) {
+                        last = name;
+                        lastId = ObjectId.fromString(line.substring(0, Constants.OBJECT_ID_STRING_LENGTH));
+                        boolean peeled = fullyPeeled || peeledTags && name.startsWith(Constants.R_TAGS);
+                        refs.put(name, peeled
+                                ? new ObjectIdRef.PeeledNonTag(Ref.Storage.PACKED, name, lastId)
+                                : new ObjectIdRef.Unpeeled(Ref.Storage.PACKED, name, lastId));
+                    }
+                }
+            }
+        }
+        return refs;
+    }
+
+    private static Map<ObjectId, ObjectId> peeledTags(File stateDirectory) throws IOException {
+        Map<ObjectId, ObjectId> peeled = new HashMap<>();
+        File file = new File(stateDirectory, PEELED_TAGS_FILE);
+        if (!file.isFile()) {
+            return peeled;
+        }
+        for (String line : Files.readAllLines(file.toPath(), StandardCharsets.US_ASCII)) {
+            String[] ids = line.split(" ");
+            if (ids.length == 2 && ObjectId.isId(ids[0]) && ObjectId.isId(ids[1])) {
+                peeled.put(ObjectId.fromString(ids[0]), ObjectId.fromString(ids[1]));
+            }
+        }
+        return peeled;
+    }
+
+    /**
+     * Remembers the peeled ids of the given (peeled) tags of the given repository for later resolutions, unless they
+     * are remembered already.
+     */
+    static void rememberPeeled(Repository repository, Collection<Ref> tags) {
+        try {
+            File directory = PersistentVersionCache.stateDirectory(repository);
+            Map<ObjectId, ObjectId> remembered = peeledTags(directory);
+            List<String> lines = new ArrayList<>();
+            for (Ref tag : tags) {
+                if (tag.getObjectId() != null && !remembered.containsKey(tag.getObjectId())) {
+                    ObjectId peeled = tag.getPeeledObjectId() != null ? tag.getPeeledObjectId() : tag.getObjectId();
+                    lines.add(tag.getObjectId().getName() + " " + peeled.getName());
+                }
+            }
+            if (lines.isEmpty()) {
+                return;
+            }
+            Files.createDirectories(directory.toPath());
+            Files.write(
+                    new File(directory, PEELED_TAGS_FILE).toPath(),
+                    lines,
+                    StandardCharsets.US_ASCII,
+                    StandardOpenOption.CREATE,
+                    StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            // the tags are peeled again next time
+        }
+    }
+
+    private static Ref peeled(Ref.Storage storage, String name, ObjectId id, ObjectId peeled) {
+        return peeled.equals(id)
+                ? new ObjectIdRef.PeeledNonTag(storage, name, id)
+                : new ObjectIdRef.PeeledTag(storage, name, id, peeled);
+    }
+
+    private static String read(File file) throws IOException {
+        return file.isFile() ? new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8).trim() : null;
+    }
+
+}
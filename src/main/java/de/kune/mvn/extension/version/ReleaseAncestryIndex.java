@@ -0,0 +1,224 @@
+package de.kune.mvn.extension.version;
+
+import de.kune.mvn.extension.version.GitDevFlow.Increment;
+import de.kune.mvn.extension.version.GitDevFlow.SemVer;
+import de.kune.mvn.extension.version.GitDevFlow.TagIndex;
+import org.codehaus.plexus.logging.Logger;
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Persistent per-commit checkpoints of the release ancestry: the nearest reachable release tag with its distance and
+ * the increment accumulated on the first-parent chain since the last release. History walks stop at checkpointed
+ * commits, so a build only walks the commits added since the last resolution. All checkpoints are discarded as soon
+ * as tags are added, moved or removed, or the commit types are reconfigured.
+ */
+class ReleaseAncestryIndex {
+
+    static final String ANCESTRY_INDEX_PROPERTY = "version-extension.ancestry-index";
+
+    private static final String ANCESTRY_DIRECTORY = "ancestry";
+
+    private static final String FINGERPRINT_PREFIX = "# tags ";
+
+    private static final String NO_RELEASE = "-";
+
+    private static final int MAX_CHECKPOINTS = 4096;
+
+    private final Logger logger;
+
+    private final File file;
+
+    private final String fingerprint;
+
+    private final Map<AnyObjectId, Checkpoint> checkpoints = new LinkedHashMap<>();
+
+    private final Map<AnyObjectId, Checkpoint> assumptions = new HashMap<>();
+
+    private boolean modified;
+
+    private ReleaseAncestryIndex(Logger logger, File file, String fingerprint) {
+        this.logger = logger;
+        this.file = file;
+        this.fingerprint = fingerprint;
+    }
+
+    public static boolean isEnabled() {
+        return !"false".equalsIgnoreCase(System.getProperty(ANCESTRY_INDEX_PROPERTY));
+    }
+
+    public static ReleaseAncestryIndex open(Logger logger, Repository repository, boolean includeHotfix)
+            throws IOException {
+        return open(logger, repository, includeHotfix, TagIndex.load(repository));
+    }
+
+    /**
+     * Opens the checkpoints for the given tags; module-scoped tags have checkpoints of their own.
+     */
+    public static ReleaseAncestryIndex open(
+            Logger logger,
+            Repository repository,
+            boolean includeHotfix,
+            TagIndex tags) throws IOException {
+        if (!isEnabled()) {
+            return new ReleaseAncestryIndex(null, null, null);
+        }
+        String name = includeHotfix ? "hotfix" : "release";
+        File file = new File(
+                new File(PersistentVersionCache.stateDirectory(repository), ANCESTRY_DIRECTORY),
+                tags.module().isEmpty() ? name : name + "-" + PersistentVersionCache.sha1(tags.module()));
+        ReleaseAncestryIndex index = new ReleaseAncestryIndex(
+                logger,
+                file,
+                tags.fingerprint() + " " + CommitClassifier.configured().fingerprint());
+        index.load();
+        return index;
+    }
+
+    private void load() {
+        if (!file.isFile()) {
+            return;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            if (!(FINGERPRINT_PREFIX + fingerprint).equals(reader.readLine())) {
+                logger.debug("Tags or commit types changed, discarding release ancestry checkpoints");
+                modified = true;
+                return;
+            }
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] fields = line.split(" ");
+                if (fields.length == 5) {
+                    checkpoints.put(
+                            ObjectId.fromString(fields[0]),
+                            new Checkpoint(
+                                    NO_RELEASE.equals(fields[1]) ? null : SemVer.of(fields[1]),
+                                    Integer.parseInt(fields[2]),
+                                    Increment.valueOf(fields[3]),
+                                    Long.parseLong(fields[4])));
+                }
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            logger.debug("Could not read release ancestry checkpoints " + file + ": " + e);
+            checkpoints.clear();
+            modified = true;
+        }
+    }
+
+    /**
+     * Returns a view of this index with the checkpoints assumed for this resolution only, but none of the stored ones;
+     * checkpoints put into it are dropped.
+     */
+    public ReleaseAncestryIndex withoutCheckpoints() {
+        ReleaseAncestryIndex index = new ReleaseAncestryIndex(logger, null, null);
+        index.assumptions.putAll(assumptions);
+        return index;
+    }
+
+    public Optional<Checkpoint> get(AnyObjectId commitId) {
+        Checkpoint assumption = assumptions.get(commitId);
+        return Optional.ofNullable(assumption != null ? assumption : checkpoints.get(commitId));
+    }
+
+    /**
+     * Adds a checkpoint that is only valid for this resolution and is never saved, e.g. at a shallow clone boundary.
+     */
+    public void assume(AnyObjectId commitId, Checkpoint checkpoint) {
+        assumptions.put(commitId.copy(), checkpoint);
+    }
+
+    public void put(AnyObjectId commitId, Checkpoint checkpoint) {
+        if (file != null) {
+            checkpoints.remove(commitId);
+            checkpoints.put(commitId.copy(), checkpoint);
+            modified = true;
+        }
+    }
+
+    public void save() {
+        if (file == null || !modified) {
+            return;
+        }
+        for (Iterator<AnyObjectId> i = checkpoints.keySet().iterator(); checkpoints.size() > MAX_CHECKPOINTS; ) {
+            i.next();
+            i.remove();
+        }
+        try {
+            Files.createDirectories(file.getParentFile().toPath());
+            Path tmp = Files.createTempFile(file.getParentFile().toPath(), file.getName(), ".tmp");
+            try (BufferedWriter writer = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+                writer.write(FINGERPRINT_PREFIX + fingerprint);
+                writer.newLine();
+                for (Map.Entry<AnyObjectId, Checkpoint> e : checkpoints.entrySet()) {
+                    Checkpoint checkpoint = e.getValue();
+                    writer.write(e.getKey().getName()
+                            + " " + (checkpoint.getRelease() == null ? NO_RELEASE : checkpoint.getRelease().getVersion())
+                            + " " + checkpoint.getDistance()
+                            + " " + checkpoint.getIncrement()
+                            + " " + checkpoint.getCommits());
+                    writer.newLine();
+                }
+            }
+            Files.move(tmp, file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            modified = false;
+        } catch (IOException e) {
+            logger.debug("Could not write release ancestry checkpoints " + file + ": " + e);
+        }
+    }
+
+    /**
+     * Release ancestry of a single commit: the nearest reachable release (or {@code null} if there is none) with its
+     * distance in parent edges, and the increment and number of commits on the first-parent chain down to the last
+     * release tag.
+     */
+    static class Checkpoint {
+
+        private final SemVer release;
+
+        private final int distance;
+
+        private final Increment increment;
+
+        private final long commits;
+
+        public Checkpoint(SemVer release, int distance, Increment increment, long commits) {
+            this.release = release;
+            this.distance = distance;
+            this.increment = increment;
+            this.commits = commits;
+        }
+
+        public SemVer getRelease() {
+            return release;
+        }
+
+        public int getDistance() {
+            return distance;
+        }
+
+        public Increment getIncrement() {
+            return increment;
+        }
+
+        public long getCommits() {
+            return commits;
+        }
+
+    }
+
+}
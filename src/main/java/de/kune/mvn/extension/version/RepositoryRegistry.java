@@ -0,0 +1,92 @@
+package de.kune.mvn.extension.version;
+
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.lib.RepositoryCache;
+import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
+import org.eclipse.jgit.util.FS;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Session-scoped registry of git repositories. Remembers for every directory which repository it belongs to, so that
+ * the upward search for the git directory happens once per directory, and hands out one shared {@link Repository} per
+ * repository. All repositories are closed by {@link #closeAll()} at the end of the session.
+ */
+class RepositoryRegistry {
+
+    private static final ConcurrentMap<File, Optional<File>> repositoryDirectories = new ConcurrentHashMap<>();
+
+    private static final ConcurrentMap<File, Repository> repositories = new ConcurrentHashMap<>();
+
+    private RepositoryRegistry() {
+    }
+
+    /**
+     * Returns the shared repository the given directory belongs to, or nothing if it does not belong to any.
+     */
+    public static Optional<Repository> repository(File directory) throws IOException {
+        Optional<File> repositoryDirectory = repositoryDirectory(directory);
+        if (!repositoryDirectory.isPresent()) {
+            return Optional.empty();
+        }
+        Repository repository = repositories.get(repositoryDirectory.get());
+        if (repository == null) {
+            synchronized (repositories) {
+                repository = repositories.get(repositoryDirectory.get());
+                if (repository == null) {
+                    repository = new FileRepositoryBuilder().findGitDir(repositoryDirectory.get()).build();
+                    repositories.put(repositoryDirectory.get(), repository);
+                }
+            }
+        }
+        return Optional.of(repository);
+    }
+
+    /**
+     * Returns the directory the upward search for a git directory stops at for the given directory: either a
+     * directory containing {@code .git} or a bare git directory. Results are memoized for the directory and all
+     * directories visited on the way up.
+     */
+    static Optional<File> repositoryDirectory(File directory) {
+        List<File> visited = new ArrayList<>();
+        Optional<File> result = Optional.empty();
+        for (File current = directory.getAbsoluteFile(); current != null; current = current.getParentFile()) {
+            Optional<File> known = repositoryDirectories.get(current);
+            if (known != null) {
+                result = known;
+                break;
+            }
+            visited.add(current);
+            File dotGit = new File(current, Constants.DOT_GIT);
+            if (RepositoryCache.FileKey.isGitRepository(dotGit, FS.DETECTED) || dotGit.isFile()
+                    || RepositoryCache.FileKey.isGitRepository(current, FS.DETECTED)) {
+                result = Optional.of(current);
+                break;
+            }
+        }
+        for (File v : visited) {
+            repositoryDirectories.putIfAbsent(v, result);
+        }
+        return result;
+    }
+
+    /**
+     * Closes all repositories handed out and forgets all memoized directories and commit-graphs.
+     */
+    public static void closeAll() {
+        synchronized (repositories) {
+            repositories.values().forEach(Repository::close);
+            repositories.clear();
+        }
+        repositoryDirectories.clear();
+        CommitGraph.clear();
+    }
+
+}
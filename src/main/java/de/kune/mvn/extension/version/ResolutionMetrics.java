@@ -0,0 +1,172 @@
+package de.kune.mvn.extension.version;
+
+import org.codehaus.plexus.logging.Logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Session-wide timings and counters of version resolution. They are always collected, but only published at the end of
+ * the session if {@value #METRICS_PROPERTY} is {@code true}, as a one-line summary and as a JSON report
+ * ({@value #DEFAULT_REPORT} below the reactor base directory, unless configured otherwise).
+ * Phases nest and may run concurrently (e.g. the classification within the first-parent walk, or the resolution
+ * triggered by the first POM rewrite), so their timings do not add up to the build time. Objects read are the commits
+ * parsed, the tags peeled and the commit trees diffed.
+ */
+class ResolutionMetrics {
+
+    static final String METRICS_PROPERTY = "version-extension.metrics";
+
+    static final String METRICS_REPORT_PROPERTY = "version-extension.metrics-report";
+
+    static final String DEFAULT_REPORT = "target/version-extension-metrics.json";
+
+    enum Phase {
+
+        DISCOVERY("discovery"),
+        TAGS("tags"),
+        BRANCH("branch"),
+        FIRST_PARENT_WALK("first-parent-walk"),
+        REACHABLE_TAG_WALK("reachable-tag-walk"),
+        CLASSIFICATION("classification"),
+        POM_REWRITE("pom-rewrite");
+
+        private final String key;
+
+        private final LongAdder nanos = new LongAdder();
+
+        private final LongAdder calls = new LongAdder();
+
+        Phase(String key) {
+            this.key = key;
+        }
+
+        public long getNanos() {
+            return nanos.sum();
+        }
+
+        public long getCalls() {
+            return calls.sum();
+        }
+
+    }
+
+    enum Counter {
+
+        COMMITS_PARSED("commits-parsed"),
+        TAGS_SCANNED("tags-scanned"),
+        OBJECTS_READ("objects-read"),
+        CACHE_HITS("cache-hits"),
+        CACHE_MISSES("cache-misses");
+
+        private final String key;
+
+        private final LongAdder count = new LongAdder();
+
+        Counter(String key) {
+            this.key = key;
+        }
+
+        public long get() {
+            return count.sum();
+        }
+
+    }
+
+    private ResolutionMetrics() {
+    }
+
+    public static long start() {
+        return System.nanoTime();
+    }
+
+    /**
+     * Records one call of the given phase, started at the given {@link #start()} time.
+     */
+    public static void stop(Phase phase, long start) {
+        add(phase, System.nanoTime() - start, 1);
+    }
+
+    public static void add(Phase phase, long nanos, long calls) {
+        phase.nanos.add(nanos);
+        phase.calls.add(calls);
+    }
+
+    public static void count(Counter counter, long amount) {
+        counter.count.add(amount);
+    }
+
+    public static void reset() {
+        for (Phase phase : Phase.values()) {
+            phase.nanos.reset();
+            phase.calls.reset();
+        }
+        for (Counter counter : Counter.values()) {
+            counter.count.reset();
+        }
+    }
+
+    public static String summary() {
+        StringBuilder summary = new StringBuilder("Version resolution:");
+        String separator = " ";
+        for (Phase phase : Phase.values()) {
+            if (phase.getCalls() > 0) {
+                summary.append(separator).append(phase.key).append(' ')
+                        .append(String.format(Locale.ROOT, "%.1f", phase.getNanos() / 1e6)).append(" ms");
+                separator = ", ";
+            }
+        }
+        for (Counter counter : Counter.values()) {
+            summary.append(separator).append(counter.key).append('=').append(counter.get());
+            separator = ", ";
+        }
+        return summary.toString();
+    }
+
+    public static String json() {
+        StringBuilder json = new StringBuilder("{\n  \"phases\": {");
+        String separator = "\n";
+        for (Phase phase : Phase.values()) {
+            json.append(separator).append("    \"").append(phase.key).append("\": { \"nanos\": ").append(phase.getNanos())
+                    .append(", \"calls\": ").append(phase.getCalls()).append(" }");
+            separator = ",\n";
+        }
+        json.append("\n  },\n  \"counters\": {");
+        separator = "\n";
+        for (Counter counter : Counter.values()) {
+            json.append(separator).append("    \"").append(counter.key).append("\": ").append(counter.get());
+            separator = ",\n";
+        }
+        return json.append("\n  }\n}\n").toString();
+    }
+
+    /**
+     * Logs the summary and writes the report of the session with the given base directory, if enabled, and starts
+     * over.
+     */
+    public static void publish(Logger logger, File baseDirectory) {
+        try {
+            if (!"true".equalsIgnoreCase(System.getProperty(METRICS_PROPERTY))) {
+                return;
+            }
+            logger.info(summary());
+            File report = new File(System.getProperty(METRICS_REPORT_PROPERTY, DEFAULT_REPORT));
+            if (!report.isAbsolute() && baseDirectory != null) {
+                report = new File(baseDirectory, report.getPath());
+            }
+            try {
+                Files.createDirectories(report.getAbsoluteFile().getParentFile().toPath());
+                PomModelStore.writeAtomically(report, json().getBytes(StandardCharsets.UTF_8));
+            } catch (IOException e) {
+                logger.warn("Could not write version resolution report " + report + ": " + e);
+            }
+        } finally {
+            reset();
+        }
+    }
+
+}
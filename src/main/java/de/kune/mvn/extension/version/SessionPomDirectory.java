@@ -0,0 +1,100 @@
+package de.kune.mvn.extension.version;
+
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.model.Model;
+import org.apache.maven.project.MavenProject;
+import org.codehaus.plexus.logging.Logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Optional;
+
+/**
+ * Output mode writing the versioned POMs of all projects into one directory per session instead of next to each
+ * {@code pom.xml}. Nothing is written while the models are read; all versioned POMs are written atomically and in
+ * parallel once the projects are read, and cleaning up is a single directory removal.
+ */
+class SessionPomDirectory {
+
+    static final String OUTPUT_DIRECTORY_PROPERTY = "version-extension.output-directory";
+
+    private static volatile Path sessionDirectory;
+
+    private SessionPomDirectory() {
+    }
+
+    public static boolean isEnabled() {
+        String outputDirectory = System.getProperty(OUTPUT_DIRECTORY_PROPERTY);
+        return outputDirectory != null && !outputDirectory.trim().isEmpty();
+    }
+
+    /**
+     * Writes the versioned POMs of all projects of the session into a new directory below the configured output
+     * directory (relative to the base directory of the session) and makes them the POM files of the projects.
+     */
+    public static void writeAll(Logger logger, MavenSession session) throws IOException {
+        File outputDirectory = new File(System.getProperty(OUTPUT_DIRECTORY_PROPERTY).trim());
+        if (!outputDirectory.isAbsolute() && session.getRequest().getBaseDirectory() != null) {
+            outputDirectory = new File(session.getRequest().getBaseDirectory(), outputDirectory.getPath());
+        }
+        Files.createDirectories(outputDirectory.toPath());
+        Path directory = Files.createTempDirectory(outputDirectory.toPath(), "session-");
+        sessionDirectory = directory;
+        try {
+            session.getProjects().parallelStream().forEach(p -> write(directory, p));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        logger.debug("Wrote versioned POMs to " + directory);
+    }
+
+    private static void write(Path directory, MavenProject project) {
+        Optional<Model> model = Optional.ofNullable(project.getModel().getPomFile()).flatMap(PomModelStore::get);
+        if (!model.isPresent()) {
+            return;
+        }
+        try {
+            Path versionedPom = directory.resolve(project.getGroupId()).resolve(project.getArtifactId()).resolve("pom.xml");
+            Files.createDirectories(versionedPom.getParent());
+            PomModelStore.writeAtomically(versionedPom.toFile(), PomModelStore.serialize(model.get()));
+            project.setPomFile(versionedPom.toFile());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Removes the directory of the current session, if any.
+     */
+    public static void cleanUp(Logger logger) {
+        Path directory = sessionDirectory;
+        sessionDirectory = null;
+        if (directory == null) {
+            return;
+        }
+        try {
+            Files.walkFileTree(directory, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                    Files.delete(file);
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
+                    Files.delete(dir);
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            logger.warn("Could not remove versioned POMs " + directory + ": " + e);
+        }
+    }
+
+}
@@ -0,0 +1,148 @@
+package de.kune.mvn.extension.version;
+
+import org.codehaus.plexus.logging.Logger;
+
+import java.io.File;
+import java.lang.reflect.InvocationTargetException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * Session-scoped registry of version extensions. Each extension is resolved and instantiated once per session, either
+ * from the built-in extensions, from the extensions discovered through {@link ServiceLoader} (registered under their
+ * class name) or by loading the named class. The version each extension determines for a project directory is
+ * memoized, so that repeated placeholders in a reactor cost a map lookup. Everything is forgotten by
+ * {@link #clear()} at the start and at the end of the session, so that a session that failed before its end does not
+ * leave versions behind for the next one.
+ */
+class VersionExtensionRegistry {
+
+    private static final Map<String, Class<? extends VersionExtension>> BUILT_IN_EXTENSIONS = new HashMap<>();
+
+    static {
+        BUILT_IN_EXTENSIONS.put("git-dev-flow", GitDevFlow.class);
+    }
+
+    private static final ConcurrentMap<String, VersionExtension> extensions = new ConcurrentHashMap<>();
+
+    private static final ConcurrentMap<VersionKey, String> versions = new ConcurrentHashMap<>();
+
+    private static volatile Map<String, VersionExtension> discovered;
+
+    private VersionExtensionRegistry() {
+    }
+
+    /**
+     * Returns the shared instance of the named extension: a built-in extension name or the class name of an
+     * extension.
+     */
+    public static VersionExtension extension(Logger logger, String name) {
+        return extensions.computeIfAbsent(name, n -> resolve(logger, n));
+    }
+
+    /**
+     * Returns the version of the named extension for the given project directory, determining it only the first time
+     * it is requested in this session. Versions are not memoized if there is no project directory.
+     */
+    public static String version(String name, File projectDirectory, Supplier<String> determineVersion) {
+        if (projectDirectory == null) {
+            return determineVersion.get();
+        }
+        VersionKey key = new VersionKey(name, projectDirectory.getAbsoluteFile());
+        String version = versions.get(key);
+        if (version == null) {
+            version = determineVersion.get();
+            versions.putIfAbsent(key, version);
+        }
+        return version;
+    }
+
+    public static void clear() {
+        extensions.clear();
+        versions.clear();
+        discovered = null;
+    }
+
+    private static VersionExtension resolve(Logger logger, String name) {
+        Class<? extends VersionExtension> builtIn = BUILT_IN_EXTENSIONS.get(name);
+        if (builtIn != null) {
+            return instantiate(builtIn);
+        }
+        VersionExtension serviceExtension = discover(logger).get(name);
+        if (serviceExtension != null) {
+            return serviceExtension;
+        }
+        try {
+            Class<?> versionExtensionClass = ClassLoader.getSystemClassLoader().loadClass(name);
+            if (!VersionExtension.class.isAssignableFrom(versionExtensionClass)) {
+                throw new IllegalStateException(name + " does not implement " + VersionExtension.class);
+            }
+            return instantiate(versionExtensionClass.asSubclass(VersionExtension.class));
+        } catch (ClassNotFoundException e) {
+            throw new IllegalStateException("Could not instatiate " + name, e);
+        }
+    }
+
+    private static Map<String, VersionExtension> discover(Logger logger) {
+        Map<String, VersionExtension> result = discovered;
+        if (result == null) {
+            result = new HashMap<>();
+            try {
+                for (VersionExtension extension : ServiceLoader.load(
+                        VersionExtension.class,
+                        VersionExtensionRegistry.class.getClassLoader())) {
+                    result.putIfAbsent(extension.getClass().getName(), extension);
+                }
+            } catch (ServiceConfigurationError e) {
+                logger.warn("Could not discover version extensions: " + e.getMessage());
+            }
+            discovered = result;
+        }
+        return result;
+    }
+
+    private static VersionExtension instantiate(Class<? extends VersionExtension> versionExtensionClass) {
+        try {
+            return versionExtensionClass.getDeclaredConstructor().newInstance();
+        } catch (InstantiationException | IllegalAccessException | NoSuchMethodException | InvocationTargetException e) {
+            throw new IllegalStateException("Could not instatiate " + versionExtensionClass, e);
+        }
+    }
+
+    private static class VersionKey {
+
+        private final String extension;
+
+        private final File projectDirectory;
+
+        private VersionKey(String extension, File projectDirectory) {
+            this.extension = extension;
+            this.projectDirectory = projectDirectory;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof VersionKey)) {
+                return false;
+            }
+            VersionKey other = (VersionKey) o;
+            return extension.equals(other.extension) && projectDirectory.equals(other.projectDirectory);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(extension, projectDirectory);
+        }
+
+    }
+
+}
@@ -0,0 +1,120 @@
+package de.kune.mvn.extension.version;
+
+import de.kune.mvn.extension.version.GitDevFlow.Increment;
+import de.kune.mvn.extension.version.GitDevFlow.SemVer;
+import de.kune.mvn.extension.version.ReleaseAncestryIndex.Checkpoint;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.Repository;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.Set;
+
+/**
+ * Version checkpoint for shallow clones: the last release behind the shallow boundary and the increment of the commits
+ * between that release and the boundary, which are missing from the clone. It is read from the system properties
+ * {@value #BASE_RELEASE_PROPERTY} and {@value #BUMP_PROPERTY} or, if these are not set, from the properties file
+ * {@value #VERSION_STATE_FILE} (keys {@code base-release} and {@code bump}) in the working tree.
+ */
+class VersionState {
+
+    static final String BASE_RELEASE_PROPERTY = "version-extension.base-release";
+
+    static final String BUMP_PROPERTY = "version-extension.bump";
+
+    static final String VERSION_STATE_FILE = ".mvn/version-state";
+
+    private final SemVer baseRelease;
+
+    private final Increment bump;
+
+    VersionState(SemVer baseRelease, Increment bump) {
+        this.baseRelease = baseRelease;
+        this.bump = bump;
+    }
+
+    public SemVer getBaseRelease() {
+        return baseRelease;
+    }
+
+    public Increment getBump() {
+        return bump;
+    }
+
+    /**
+     * Returns the configured version state of the given repository, or nothing if there is none.
+     *
+     * @throws IllegalArgumentException if the base release or the bump level cannot be parsed
+     */
+    public static Optional<VersionState> configured(Repository repository) throws IOException {
+        String baseRelease = System.getProperty(BASE_RELEASE_PROPERTY);
+        String bump = System.getProperty(BUMP_PROPERTY);
+        if (isBlank(baseRelease)) {
+            File file = file(repository);
+            if (file == null || !file.isFile()) {
+                return Optional.empty();
+            }
+            Properties properties = new Properties();
+            try (Reader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+                properties.load(reader);
+            }
+            baseRelease = properties.getProperty("base-release");
+            bump = isBlank(bump) ? properties.getProperty("bump") : bump;
+            if (isBlank(baseRelease)) {
+                throw new IllegalArgumentException("No base-release in " + file);
+            }
+        }
+        return Optional.of(new VersionState(
+                SemVer.of(baseRelease.trim()),
+                isBlank(bump) ? Increment.NONE : Increment.valueOf(bump.trim().toUpperCase(Locale.ROOT))));
+    }
+
+    /**
+     * Returns the commits at the shallow boundary of the given repository, which is empty unless it is a shallow
+     * clone.
+     */
+    public static Set<ObjectId> shallowCommits(Repository repository) throws IOException {
+        try (ObjectReader reader = repository.newObjectReader()) {
+            return reader.getShallowCommits();
+        }
+    }
+
+    /**
+     * Returns the checkpoint of a commit at the shallow boundary with the given own increment: its nearest release is
+     * the base release one parent edge away, and the increment since that release includes the bump level.
+     */
+    public Checkpoint checkpoint(Increment increment) {
+        return new Checkpoint(baseRelease, 1, increment.max(bump), 1);
+    }
+
+    /**
+     * Fingerprints the configured version state and the shallow boundary of the given repository from the version
+     * properties and the modification times of the version state file and the {@code shallow} file of the repository.
+     */
+    static String fingerprint(Repository repository) {
+        return fingerprint(repository.getDirectory(), repository.isBare() ? null : repository.getWorkTree());
+    }
+
+    static String fingerprint(File gitDirectory, File workTree) {
+        File file = workTree == null ? null : new File(workTree, VERSION_STATE_FILE);
+        return System.getProperty(BASE_RELEASE_PROPERTY, "") + ":" + System.getProperty(BUMP_PROPERTY, "") + ":"
+                + (file == null ? 0 : file.lastModified()) + ":"
+                + new File(gitDirectory, "shallow").lastModified();
+    }
+
+    private static File file(Repository repository) {
+        return repository.isBare() ? null : new File(repository.getWorkTree(), VERSION_STATE_FILE);
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.trim().isEmpty();
+    }
+
+}
@@ -0,0 +1,185 @@
+package de.kune.mvn.extension.version;
+
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.Repository;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-memory cache of resolved versions for long-lived Maven processes (e.g. the Maven daemon). Every entry records a
+ * fingerprint of the repository state it was resolved from: the contents of {@code HEAD}, of the current branch ref
+ * and of the local and remote-tracking refs of the branch hint, size and modification time of {@code packed-refs},
+ * the modification times of all directories below {@code refs/heads} and {@code refs/tags} (loose refs are created,
+ * updated and deleted by renaming or unlinking them in their directory), the configured commit types and tag prefix,
+ * the branch hint, and the shallow boundary and version state of shallow clones. Lookups recompute the fingerprint (a
+ * {@code stat} call per ref directory, the subdirectories of unchanged directories are remembered, and a few tiny
+ * reads) and ignore entries that no longer match. The least recently used entries are evicted beyond
+ * {@value #MAX_ENTRIES} entries.
+ */
+class VersionsCache {
+
+    private static final int MAX_ENTRIES = 256;
+
+    private static final ConcurrentMap<File, Directory> directories = new ConcurrentHashMap<>();
+
+    private final Map<String, Entry> entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+
+    /**
+     * Returns the cached version for the given key, or nothing if there is none or it was resolved from a different
+     * repository state.
+     */
+    public synchronized Optional<String> get(String key, String fingerprint) {
+        Entry entry = entries.get(key);
+        if (entry == null || !entry.fingerprint.equals(fingerprint)) {
+            return Optional.empty();
+        }
+        return Optional.of(entry.version);
+    }
+
+    public synchronized void put(String key, String fingerprint, String version) {
+        if (version != null) {
+            entries.put(key, new Entry(fingerprint, version));
+        }
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        directories.clear();
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Fingerprints the state of the given repository that determines its version, without opening any objects.
+     */
+    static String fingerprint(Repository repository) {
+        return fingerprint(repository.getDirectory(), repository.isBare() ? null : repository.getWorkTree());
+    }
+
+    /**
+     * Fingerprints the state of the repository with the given git directory and working tree (if not bare).
+     */
+    static String fingerprint(File gitDirectory, File workTree) {
+        File commonDirectory;
+        try {
+            commonDirectory = PersistentVersionCache.commonDirectory(gitDirectory);
+        } catch (IOException e) {
+            commonDirectory = gitDirectory;
+        }
+        StringBuilder fingerprint = new StringBuilder();
+        String head = read(new File(gitDirectory, Constants.HEAD));
+        fingerprint.append(head).append('|');
+        if (head.startsWith("ref: ")) {
+            String ref = head.substring("ref: ".length()).trim();
+            File refFile = new File(gitDirectory, ref);
+            fingerprint.append(read(refFile.isFile() ? refFile : new File(commonDirectory, ref))).append('|');
+        }
+        Optional<String> hint = BranchHints.configured();
+        if (hint.isPresent()) {
+            fingerprint.append(read(new File(commonDirectory, Constants.R_HEADS + hint.get()))).append('|')
+                    .append(read(new File(
+                            commonDirectory,
+                            Constants.R_REMOTES + Constants.DEFAULT_REMOTE_NAME + "/" + hint.get()))).append('|');
+        }
+        File packedRefs = new File(commonDirectory, Constants.PACKED_REFS);
+        fingerprint.append(packedRefs.length()).append(':').append(lastModified(packedRefs)).append('|')
+                .append(directoriesFingerprint(new File(commonDirectory, Constants.R_HEADS))).append('|')
+                .append(directoriesFingerprint(new File(commonDirectory, Constants.R_TAGS))).append('|')
+                .append(CommitClassifier.configured().fingerprint()).append('|')
+                .append(System.getProperty(GitDevFlow.TAG_PREFIX_PROPERTY, "")).append('|')
+                .append(hint.orElse("")).append('|')
+                .append(VersionState.fingerprint(gitDirectory, workTree));
+        return fingerprint.toString();
+    }
+
+    /**
+     * Hashes the modification times of the given directory and of all directories below it, so that refs created,
+     * updated, moved or deleted in nested directories (e.g. {@code refs/heads/feature/x} or module tags) change the
+     * fingerprint. Only directories whose modification time changed since the last call are listed again.
+     */
+    private static String directoriesFingerprint(File directory) {
+        long hash = 17;
+        Deque<File> pending = new ArrayDeque<>();
+        pending.add(directory);
+        while (!pending.isEmpty()) {
+            File current = pending.poll();
+            long lastModified = lastModified(current);
+            hash = 31 * hash + current.getPath().hashCode();
+            hash = 31 * hash + lastModified;
+            if (lastModified == 0) {
+                directories.remove(current);
+                continue;
+            }
+            Directory listed = directories.get(current);
+            if (listed == null || listed.lastModified != lastModified) {
+                File[] subdirectories = current.listFiles(File::isDirectory);
+                listed = new Directory(lastModified, subdirectories == null ? new File[0] : subdirectories);
+                directories.put(current, listed);
+            }
+            pending.addAll(Arrays.asList(listed.subdirectories));
+        }
+        return Long.toHexString(hash);
+    }
+
+    private static long lastModified(File file) {
+        try {
+            return Files.getLastModifiedTime(file.toPath()).to(TimeUnit.NANOSECONDS);
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private static String read(File file) {
+        try {
+            return file.isFile() ? new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8).trim() : "";
+        } catch (IOException e) {
+            return "";
+        }
+    }
+
+    private static class Directory {
+
+        private final long lastModified;
+
+        private final File[] subdirectories;
+
+        private Directory(long lastModified, File[] subdirectories) {
+            this.lastModified = lastModified;
+            this.subdirectories = subdirectories;
+        }
+
+    }
+
+    private static class Entry {
+
+        private final String fingerprint;
+
+        private final String version;
+
+        private Entry(String fingerprint, String version) {
+            this.fingerprint = fingerprint;
+            this.version = version;
+        }
+
+    }
+
+}
@@ -0,0 +1,109 @@
+package de.kune.mvn.extension.version;
+
+import de.kune.mvn.extension.version.GitDevFlow.TagIndex;
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Fixed-size ring buffer of the last {@value #CAPACITY} commits visited by a history walk, recorded as primitive
+ * records (raw commit id, parent count, event) without allocating. The records are only formatted on demand, i.e. if
+ * debug logging is enabled or the resolution fails. Walks register their traces with the resolution running on the
+ * current thread, see {@link #begin()}.
+ */
+class WalkTrace {
+
+    static final int CAPACITY = 256;
+
+    static final byte VISIT = 0;
+
+    static final byte RELEASE = 1;
+
+    static final byte CHECKPOINT = 2;
+
+    static final byte MAJOR = 3;
+
+    private static final String[] EVENTS = { "", " release", " checkpoint", " major increment" };
+
+    private static final ThreadLocal<List<WalkTrace>> resolution = new ThreadLocal<>();
+
+    private final String walk;
+
+    private final TagIndex tags;
+
+    private final byte[] ids = new byte[CAPACITY * Constants.OBJECT_ID_LENGTH];
+
+    private final int[] parentCounts = new int[CAPACITY];
+
+    private final byte[] events = new byte[CAPACITY];
+
+    private long recorded;
+
+    WalkTrace(String walk, TagIndex tags) {
+        this.walk = walk;
+        this.tags = tags;
+    }
+
+    /**
+     * Starts collecting the traces of the walks of a resolution on the current thread.
+     */
+    public static List<WalkTrace> begin() {
+        List<WalkTrace> traces = Collections.synchronizedList(new ArrayList<>());
+        resolution.set(traces);
+        return traces;
+    }
+
+    public static void end() {
+        resolution.remove();
+    }
+
+    /**
+     * Returns a new trace of the named walk, registered with the resolution running on the current thread, if any.
+     */
+    public static WalkTrace open(String walk, TagIndex tags) {
+        WalkTrace trace = new WalkTrace(walk, tags);
+        List<WalkTrace> traces = resolution.get();
+        if (traces != null) {
+            traces.add(trace);
+        }
+        return trace;
+    }
+
+    public void record(AnyObjectId commit, int parentCount, byte event) {
+        int slot = (int) (recorded++ % CAPACITY);
+        commit.copyRawTo(ids, slot * Constants.OBJECT_ID_LENGTH);
+        parentCounts[slot] = parentCount;
+        events[slot] = event;
+    }
+
+    public long size() {
+        return recorded;
+    }
+
+    /**
+     * Formats the recorded commits, oldest first, with the tags of each commit.
+     */
+    public String format() {
+        StringBuilder trace = new StringBuilder(walk).append(" walk (").append(recorded).append(" commits):");
+        long first = Math.max(0, recorded - CAPACITY);
+        if (first > 0) {
+            trace.append("\n  ... ").append(first).append(" earlier commits");
+        }
+        for (long i = first; i < recorded; i++) {
+            int slot = (int) (i % CAPACITY);
+            ObjectId id = ObjectId.fromRaw(ids, slot * Constants.OBJECT_ID_LENGTH);
+            trace.append("\n  ").append(id.getName())
+                    .append(" parents: ").append(parentCounts[slot])
+                    .append(EVENTS[events[slot]]);
+            if (tags != null && !tags.tagsOf(id).isEmpty()) {
+                trace.append(' ').append(tags.tagsOf(id));
+            }
+        }
+        return trace.toString();
+    }
+
+}
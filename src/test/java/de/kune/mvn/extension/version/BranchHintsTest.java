@@ -0,0 +1,73 @@
+package de.kune.mvn.extension.version;
+
+import org.codehaus.plexus.logging.Logger;
+import org.codehaus.plexus.logging.console.ConsoleLogger;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.apache.commons.io.FileUtils.deleteDirectory;
+
+public class BranchHintsTest {
+
+    private final Map<String, String> environment = new HashMap<>();
+
+    private File directory;
+
+    @After
+    public void tearDown() throws IOException {
+        System.clearProperty(BranchHints.BRANCH_PROPERTY);
+        System.clearProperty(PersistentVersionCache.CACHE_PROPERTY);
+        if (directory != null) {
+            GitDevFlow.clearVersionsCache();
+            RepositoryRegistry.closeAll();
+            deleteDirectory(directory);
+        }
+    }
+
+    @Test
+    public void readsCiVariables() {
+        Assert.assertEquals(Optional.empty(), BranchHints.of(environment::get));
+        environment.put("GIT_BRANCH", "origin/feature-a");
+        Assert.assertEquals(Optional.of("feature-a"), BranchHints.of(environment::get));
+        environment.put("CI_COMMIT_REF_NAME", "refs/heads/feature-b");
+        Assert.assertEquals(Optional.of("feature-b"), BranchHints.of(environment::get));
+        environment.put("GITHUB_HEAD_REF", " feature-c ");
+        Assert.assertEquals(Optional.of("feature-c"), BranchHints.of(environment::get));
+    }
+
+    @Test
+    public void ignoresRefNameOfTagPipelines() {
+        environment.put("CI_COMMIT_REF_NAME", "1.0.0");
+        environment.put("CI_COMMIT_TAG", "1.0.0");
+        Assert.assertEquals(Optional.empty(), BranchHints.of(environment::get));
+    }
+
+    @Test
+    public void usesConsistentHintForDetachedHead() throws IOException, GitAPIException {
+        System.setProperty(PersistentVersionCache.CACHE_PROPERTY, "false");
+        directory = Files.createTempDirectory(UUID.randomUUID().toString()).toFile();
+        Logger logger = new ConsoleLogger(Logger.LEVEL_INFO, "test");
+        try (Git git = Git.init().setDirectory(directory).call()) {
+            RevCommit first = git.commit().setMessage("chore: initial commit").call();
+            git.commit().setMessage("fix: something").call();
+            git.checkout().setName(first.getName()).call();
+        }
+        System.setProperty(BranchHints.BRANCH_PROPERTY, "master");
+        Assert.assertTrue(GitDevFlow.determineVersion(logger, directory).endsWith("-SNAPSHOT"));
+        System.setProperty(BranchHints.BRANCH_PROPERTY, "feature-x");
+        Assert.assertEquals("feature-x-SNAPSHOT", GitDevFlow.determineVersion(logger, directory));
+    }
+
+}
@@ -0,0 +1,130 @@
+package de.kune.mvn.extension.version;
+
+import org.codehaus.plexus.logging.Logger;
+import org.codehaus.plexus.logging.console.ConsoleLogger;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.UUID;
+
+import static org.apache.commons.io.FileUtils.deleteDirectory;
+
+public class ChangedPathIndexTest {
+
+    private final Logger logger = new ConsoleLogger(Logger.LEVEL_INFO, "test");
+
+    private File directory;
+
+    private Git git;
+
+    @Before
+    public void setUp() throws IOException, GitAPIException {
+        System.setProperty(PersistentVersionCache.CACHE_PROPERTY, "false");
+        System.setProperty(BranchHints.BRANCH_HINTS_PROPERTY, "false");
+        System.setProperty(GitDevFlow.MODULE_SCOPED_PROPERTY, "true");
+        directory = Files.createTempDirectory(UUID.randomUUID().toString()).toFile();
+        git = Git.init().setDirectory(directory).call();
+        write("services/a/pom.xml", "a");
+        write("services/b/pom.xml", "b");
+        git.add().addFilepattern(".").call();
+        git.commit().setMessage("chore: initial commit").call();
+        git.tag().setName("services/a/1.0.0").setAnnotated(false).call();
+        git.tag().setName("services/b/1.0.0").setAnnotated(false).call();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        System.clearProperty(PersistentVersionCache.CACHE_PROPERTY);
+        System.clearProperty(BranchHints.BRANCH_HINTS_PROPERTY);
+        System.clearProperty(GitDevFlow.MODULE_SCOPED_PROPERTY);
+        git.close();
+        GitDevFlow.clearVersionsCache();
+        ChangedPathIndex.clear();
+        RepositoryRegistry.closeAll();
+        deleteDirectory(directory);
+    }
+
+    @Test
+    public void versionsModulesByTheirOwnCommits() throws IOException, GitAPIException {
+        commit("services/a/src/Main.java", "feat: add main class to a");
+        commit("services/b/README", "fix: document b");
+        commit("README", "feat: document repository");
+        Assert.assertEquals("1.1.0", GitDevFlow.determineVersion(logger, new File(directory, "services/a")));
+        Assert.assertEquals("1.0.1", GitDevFlow.determineVersion(logger, new File(directory, "services/b")));
+    }
+
+    @Test
+    public void keepsReleaseOfUntouchedModule() throws IOException, GitAPIException {
+        commit("services/a/src/Main.java", "feat: add main class to a");
+        git.tag().setName("services/a/1.1.0").setAnnotated(false).call();
+        commit("services/b/README", "fix: document b");
+        Assert.assertEquals("1.1.0", GitDevFlow.determineVersion(logger, new File(directory, "services/a")));
+    }
+
+    @Test
+    public void indexesChangedDirectories() throws IOException, GitAPIException {
+        RevCommit commit = commit("services/a/src/Main.java", "feat: add main class to a");
+        try (ObjectReader reader = git.getRepository().newObjectReader(); RevWalk revWalk = new RevWalk(reader)) {
+            RevCommit parsed = revWalk.parseCommit(commit);
+            ChangedPathIndex index = ChangedPathIndex.of(logger, git.getRepository());
+            Assert.assertTrue(index.touches(reader, parsed, "services"));
+            Assert.assertTrue(index.touches(reader, parsed, "services/a"));
+            Assert.assertTrue(index.touches(reader, parsed, "services/a/src"));
+            Assert.assertFalse(index.touches(reader, parsed, "services/b"));
+            Assert.assertFalse(index.touches(reader, parsed, "services/a/test"));
+            index.save();
+            ChangedPathIndex.clear();
+            Assert.assertFalse(ChangedPathIndex.of(logger, git.getRepository()).touches(reader, parsed, "services/b"));
+        }
+        File file = new File(PersistentVersionCache.stateDirectory(git.getRepository()), "changed-paths");
+        Assert.assertEquals(1, Files.readAllLines(file.toPath()).size());
+    }
+
+    @Test
+    public void compactsIndexFile() throws IOException, GitAPIException {
+        RevCommit first = commit("services/a/src/Main.java", "feat: add main class to a");
+        RevCommit second = commit("services/b/README", "fix: document b");
+        File file = new File(PersistentVersionCache.stateDirectory(git.getRepository()), "changed-paths");
+        Files.createDirectories(file.getParentFile().toPath());
+        try (ObjectReader reader = git.getRepository().newObjectReader(); RevWalk revWalk = new RevWalk(reader)) {
+            ChangedPathIndex index = ChangedPathIndex.of(logger, git.getRepository());
+            index.touches(reader, revWalk.parseCommit(first), "services/a");
+            index.save();
+            String line = Files.readAllLines(file.toPath()).get(0);
+            StringBuilder content = new StringBuilder();
+            for (int i = 0; i < 2 * ChangedPathIndex.MAX_FILTERS; i++) {
+                content.append(line).append('\n');
+            }
+            Files.write(file.toPath(), content.toString().getBytes(StandardCharsets.US_ASCII));
+            ChangedPathIndex.clear();
+            index = ChangedPathIndex.of(logger, git.getRepository());
+            Assert.assertTrue(index.touches(reader, revWalk.parseCommit(second), "services/b"));
+            index.save();
+        }
+        Assert.assertEquals(2, Files.readAllLines(file.toPath()).size());
+    }
+
+    private RevCommit commit(String path, String message) throws IOException, GitAPIException {
+        write(path, message);
+        git.add().addFilepattern(".").call();
+        return git.commit().setMessage(message).call();
+    }
+
+    private void write(String path, String content) throws IOException {
+        File file = new File(directory, path);
+        Files.createDirectories(file.getParentFile().toPath());
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    }
+
+}
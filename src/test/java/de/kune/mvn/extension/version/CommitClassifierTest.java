@@ -0,0 +1,45 @@
+package de.kune.mvn.extension.version;
+
+import de.kune.mvn.extension.version.GitDevFlow.Increment;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class CommitClassifierTest {
+
+    private final CommitClassifier classifier = CommitClassifier.of("feat", "fix,docs,style,refactor,perf,test,chore");
+
+    @Test
+    public void classifiesCommitTypes() {
+        Assert.assertEquals(Increment.MINOR, classifier.classify("feat: something"));
+        Assert.assertEquals(Increment.MINOR, classifier.classify("Feat(scope): something\n\nbody"));
+        Assert.assertEquals(Increment.PATCH, classifier.classify("fix(a) (b): something"));
+        Assert.assertEquals(Increment.PATCH, classifier.classify("chore"));
+        Assert.assertEquals(Increment.PATCH, classifier.classify("f(x)ix: something"));
+        Assert.assertEquals(Increment.NONE, classifier.classify("feat!: something"));
+        Assert.assertEquals(Increment.NONE, classifier.classify("feature: something"));
+        Assert.assertEquals(Increment.NONE, classifier.classify("fix\nsomething: else"));
+        Assert.assertEquals(Increment.NONE, classifier.classify(":"));
+        Assert.assertEquals(Increment.NONE, classifier.classify(""));
+    }
+
+    @Test
+    public void classifiesBreakingChangeOnLastLine() {
+        Assert.assertEquals(Increment.MAJOR, classifier.classify("fix: a\n\nBREAKING CHANGE: b"));
+        Assert.assertEquals(Increment.MAJOR, classifier.classify("chore: a\n\nBREAKING CHANGE\n"));
+        Assert.assertEquals(Increment.MAJOR, classifier.classify("BREAKING CHANGE: b\r\n"));
+        Assert.assertEquals(Increment.PATCH, classifier.classify("fix: a\n\nBREAKING CHANGE: b\n\n"));
+        Assert.assertEquals(Increment.PATCH, classifier.classify("fix: a\n\nBREAKING CHANGE: b\nmore"));
+        Assert.assertEquals(Increment.NONE, classifier.classify("a\rBREAKING CHANGE"));
+        Assert.assertEquals(Increment.NONE, classifier.classify("a BREAKING CHANGE"));
+    }
+
+    @Test
+    public void usesConfiguredTypes() {
+        CommitClassifier custom = CommitClassifier.of(" Feature , feat", "feat,bugfix");
+        Assert.assertEquals(Increment.MINOR, custom.classify("feature: a"));
+        Assert.assertEquals(Increment.MINOR, custom.classify("feat: a"));
+        Assert.assertEquals(Increment.PATCH, custom.classify("BugFix: a"));
+        Assert.assertEquals(Increment.NONE, custom.classify("fix: a"));
+    }
+
+}
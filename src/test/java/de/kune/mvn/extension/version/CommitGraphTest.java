@@ -0,0 +1,141 @@
+package de.kune.mvn.extension.version;
+
+import de.kune.mvn.extension.version.GitDevFlow.TagIndex;
+import de.kune.mvn.extension.version.ReleaseAncestryIndex.Checkpoint;
+import org.codehaus.plexus.logging.Logger;
+import org.codehaus.plexus.logging.console.ConsoleLogger;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.UUID;
+
+import static org.apache.commons.io.FileUtils.copyDirectory;
+import static org.apache.commons.io.FileUtils.deleteDirectory;
+
+/**
+ * Verifies the commit-graph reader against commit-graphs written by the git command line, checked in as test cases
+ * next to the repositories they were written for.
+ */
+public class CommitGraphTest {
+
+    private final Logger logger = new ConsoleLogger(Logger.LEVEL_INFO, "test");
+
+    private File directory;
+
+    @Before
+    public void setUp() throws IOException {
+        System.setProperty(ReleaseAncestryIndex.ANCESTRY_INDEX_PROPERTY, "false");
+        directory = Files.createTempDirectory(UUID.randomUUID().toString()).toFile();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        System.clearProperty(ReleaseAncestryIndex.ANCESTRY_INDEX_PROPERTY);
+        RepositoryRegistry.closeAll();
+        deleteDirectory(directory);
+    }
+
+    @Test
+    public void readsParentsAndGenerations() throws IOException {
+        copyTestCase("commit-graph");
+        try (Repository repository = Git.open(directory).getRepository(); RevWalk revWalk = new RevWalk(repository)) {
+            CommitGraph graph = CommitGraph.configured(logger, repository).get();
+            revWalk.markStart(revWalk.parseCommit(repository.resolve(Constants.HEAD)));
+            int commits = 0;
+            for (RevCommit commit : revWalk) {
+                int position = graph.position(commit);
+                Assert.assertEquals(commit, graph.id(position));
+                Assert.assertEquals(commit.getParentCount(), graph.parentCount(position));
+                for (int p = 0; p < commit.getParentCount(); p++) {
+                    int parent = graph.parent(position, p);
+                    Assert.assertEquals(commit.getParent(p), graph.id(parent));
+                    Assert.assertTrue(graph.generation(parent) < graph.generation(position));
+                }
+                commits++;
+            }
+            Assert.assertEquals(commits, graph.size());
+        }
+    }
+
+    @Test
+    public void readsCommitGraphOncePerSession() throws IOException {
+        copyTestCase("commit-graph");
+        try (Repository repository = Git.open(directory).getRepository()) {
+            CommitGraph graph = CommitGraph.configured(logger, repository).get();
+            Assert.assertSame(graph, CommitGraph.configured(logger, repository).get());
+            RepositoryRegistry.closeAll();
+            Assert.assertNotSame(graph, CommitGraph.configured(logger, repository).get());
+            Files.delete(new File(directory, ".git/objects/info/commit-graph").toPath());
+            Assert.assertFalse(CommitGraph.configured(logger, repository).isPresent());
+        }
+    }
+
+    @Test
+    public void findsSameReleaseAsCommitObjects() throws IOException {
+        copyTestCase("commit-graph");
+        assertSameRelease();
+    }
+
+    @Test
+    public void splitsWideFrontiers() throws IOException {
+        copyTestCase("commit-graph-wide-merge");
+        assertSameRelease();
+    }
+
+    @Test
+    public void walksCommitsNewerThanCommitGraph() throws IOException, GitAPIException {
+        copyTestCase("commit-graph");
+        try (Git git = Git.open(directory)) {
+            for (int i = 0; i < 5; i++) {
+                git.commit().setMessage("fix: something " + i).call();
+            }
+        }
+        assertSameRelease();
+    }
+
+    @Test
+    public void prunesCommitsWithoutReachableRelease() throws IOException {
+        copyTestCase("commit-graph-without-release");
+        assertSameRelease();
+    }
+
+    private void assertSameRelease() throws IOException {
+        try (Repository repository = Git.open(directory).getRepository()) {
+            TagIndex tags = TagIndex.load(repository);
+            ReleaseAncestryIndex ancestry = ReleaseAncestryIndex.open(logger, repository, false);
+            Checkpoint expected;
+            System.setProperty(CommitGraph.COMMIT_GRAPH_PROPERTY, "false");
+            try {
+                expected = GitDevFlow.latestReachableReleaseTag(logger, repository, tags, ancestry, false);
+            } finally {
+                System.clearProperty(CommitGraph.COMMIT_GRAPH_PROPERTY);
+            }
+            CommitGraph graph = CommitGraph.configured(logger, repository).get();
+            Checkpoint actual = GitDevFlow.latestReachableReleaseTag(
+                    logger, repository, tags, ancestry, false, graph, new WalkTrace("Reachable-tag", tags));
+            Assert.assertEquals(expected.getDistance(), actual.getDistance());
+            Assert.assertEquals(
+                    expected.getRelease() == null ? null : expected.getRelease().getVersion(),
+                    actual.getRelease() == null ? null : actual.getRelease().getVersion());
+        }
+    }
+
+    private void copyTestCase(String testCase) throws IOException {
+        copyDirectory(
+                new File(CommitGraphTest.class.getClassLoader().getResource(testCase).getFile(), "git"),
+                new File(directory, Constants.DOT_GIT));
+        Assert.assertTrue(new File(directory, ".git/objects/info/commit-graph").isFile());
+    }
+
+}
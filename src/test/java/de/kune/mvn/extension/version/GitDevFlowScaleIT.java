@@ -0,0 +1,113 @@
+package de.kune.mvn.extension.version;
+
+import org.codehaus.plexus.logging.Logger;
+import org.codehaus.plexus.logging.console.ConsoleLogger;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.UUID;
+
+import static org.apache.commons.io.FileUtils.deleteDirectory;
+
+/**
+ * Resolves versions of large synthetic repositories within wall-clock and allocation budgets. Runs in the
+ * {@code scale-test} profile in a forked JVM with a capped heap; sizes and budgets are system properties. Walks run
+ * sequentially, so that no thread allocating for the resolution terminates before its allocations are measured.
+ */
+@RunWith(Parameterized.class)
+public class GitDevFlowScaleIT {
+
+    static final int COMMITS = Integer.getInteger("scale-test.commits", 200000);
+
+    static final int TAGS = Integer.getInteger("scale-test.tags", 20000);
+
+    static final int UNTAGGED = Integer.getInteger("scale-test.untagged", 50000);
+
+    private static final long TIME_BUDGET_MILLIS = Long.getLong("scale-test.time-budget-ms", 30000);
+
+    private static final long ALLOCATION_BUDGET_BYTES = Long.getLong("scale-test.allocation-budget-mb", 2560) << 20;
+
+    private final Logger logger = new ConsoleLogger(Logger.LEVEL_WARN, "scale-test");
+
+    private final String scenario;
+
+    private final SyntheticRepository repository;
+
+    private File directory;
+
+    @Parameterized.Parameters(name = "{0}")
+    public static Collection<Object[]> parameters() {
+        return Arrays.asList(new Object[][] {
+                { "linear", repository().withTags(TAGS, false) },
+                { "octopus", repository().withTags(TAGS, true).withMerges(100, 8) },
+                { "criss-cross", repository().withTags(TAGS, false).withCrissCrossMerges(50) },
+        });
+    }
+
+    private static SyntheticRepository repository() {
+        return new SyntheticRepository().withCommits(COMMITS).withUntagged(UNTAGGED);
+    }
+
+    public GitDevFlowScaleIT(String scenario, SyntheticRepository repository) {
+        this.scenario = scenario;
+        this.repository = repository;
+    }
+
+    @Before
+    public void setUp() throws IOException {
+        System.setProperty(PersistentVersionCache.CACHE_PROPERTY, "false");
+        System.setProperty(ReleaseAncestryIndex.ANCESTRY_INDEX_PROPERTY, "false");
+        System.setProperty(GitDevFlow.PARALLEL_WALKS_PROPERTY, "false");
+        directory = Files.createTempDirectory(UUID.randomUUID().toString()).toFile();
+        repository.create(directory);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        System.clearProperty(PersistentVersionCache.CACHE_PROPERTY);
+        System.clearProperty(ReleaseAncestryIndex.ANCESTRY_INDEX_PROPERTY);
+        System.clearProperty(GitDevFlow.PARALLEL_WALKS_PROPERTY);
+        GitDevFlow.clearVersionsCache();
+        RepositoryRegistry.closeAll();
+        deleteDirectory(directory);
+    }
+
+    @Test
+    public void resolvesWithinBudgets() {
+        long allocated = allocatedBytes();
+        long start = System.nanoTime();
+        String version = GitDevFlow.determineVersion(logger, directory);
+        long millis = (System.nanoTime() - start) / 1000000;
+        allocated = allocatedBytes() - allocated;
+        System.out.println(scenario + ": " + version + " in " + millis + " ms, " + (allocated >> 20) + " MB allocated");
+        Assert.assertTrue(version.matches("\\d+\\.\\d+\\.\\d+"));
+        Assert.assertTrue(scenario + " took " + millis + " ms", millis <= TIME_BUDGET_MILLIS);
+        Assert.assertTrue(scenario + " allocated " + (allocated >> 20) + " MB", allocated <= ALLOCATION_BUDGET_BYTES);
+    }
+
+    /**
+     * Returns the bytes allocated by all live threads so far, or 0 if the JVM does not support measuring it.
+     */
+    static long allocatedBytes() {
+        java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            long allocated = 0;
+            for (long bytes : ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(threads.getAllThreadIds())) {
+                allocated += Math.max(0, bytes);
+            }
+            return allocated;
+        }
+        return 0;
+    }
+
+}
@@ -75,6 +75,8 @@ public class GitDevFlowTest {
 
     @Before
     public void setUp() throws IOException {
+        System.clearProperty(BranchHints.BRANCH_PROPERTY);
+        System.setProperty(BranchHints.BRANCH_HINTS_PROPERTY, "false");
         Path tmp = Files.createTempDirectory(UUID.randomUUID().toString());
         File gitTmp = new File(tmp.toFile(), ".git");
         copyDirectory(gitSource(testcase), gitTmp);
@@ -83,6 +85,7 @@ public class GitDevFlowTest {
 
     @After
     public void tearDown() throws IOException {
+        System.clearProperty(BranchHints.BRANCH_HINTS_PROPERTY);
         deleteDirectory(gitTestDir);
     }
 
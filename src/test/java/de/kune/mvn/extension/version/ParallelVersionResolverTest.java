@@ -0,0 +1,69 @@
+package de.kune.mvn.extension.version;
+
+import org.codehaus.plexus.logging.console.ConsoleLogger;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.apache.commons.io.FileUtils.copyDirectory;
+import static org.apache.commons.io.FileUtils.deleteDirectory;
+
+public class ParallelVersionResolverTest {
+
+    private File root;
+
+    @Before
+    public void setUp() throws IOException {
+        root = Files.createTempDirectory(UUID.randomUUID().toString()).toFile();
+        copyDirectory(gitSource("init-with-release-and-chore-commit"), new File(root, "a/.git"));
+        copyDirectory(gitSource("detached-feature-branch"), new File(root, "modules/b/.git"));
+        copyDirectory(gitSource("init-with-release"), new File(root, "modules/b/target/c/.git"));
+        copyDirectory(gitSource("init-with-release"), new File(root, "unrelated/.git"));
+        Assert.assertTrue(new File(root, "a/sub").mkdirs());
+        pom(root, "<modules><module>a</module></modules>"
+                + "<profiles><profile><id>b</id><modules><module>modules/b/pom.xml</module></modules></profile></profiles>");
+        pom(new File(root, "a"), "<modules><module>sub</module><module>../a</module></modules>");
+        pom(new File(root, "modules/b"), "");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        RepositoryRegistry.closeAll();
+        deleteDirectory(root);
+    }
+
+    @Test
+    public void discoversRepositoriesOfModules() {
+        Assert.assertEquals(
+                new HashSet<>(Arrays.asList(new File(root, "a"), new File(root, "modules/b"))),
+                ParallelVersionResolver.discover(new ConsoleLogger(), new File(root, "pom.xml")));
+    }
+
+    @Test
+    public void resolvesAllRepositories() {
+        Map<File, String> versions = ParallelVersionResolver.resolve(new ConsoleLogger(), new File(root, "pom.xml"));
+        Assert.assertEquals("0.0.1", versions.get(new File(root, "a")));
+        Assert.assertEquals("feature-something-SNAPSHOT", versions.get(new File(root, "modules/b")));
+        Assert.assertEquals("0.0.1", GitDevFlow.determineVersion(new ConsoleLogger(), new File(root, "a/sub")));
+    }
+
+    private static void pom(File directory, String content) throws IOException {
+        Files.write(new File(directory, "pom.xml").toPath(), ("<project><modelVersion>4.0.0</modelVersion>" + content
+                + "</project>").getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static File gitSource(String testcase) {
+        return new File(ParallelVersionResolverTest.class.getClassLoader().getResource(testcase).getFile(), "git");
+    }
+
+}
@@ -0,0 +1,79 @@
+package de.kune.mvn.extension.version;
+
+import org.codehaus.plexus.logging.Logger;
+import org.codehaus.plexus.logging.console.ConsoleLogger;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.RefUpdate;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.apache.commons.io.FileUtils.copyDirectory;
+import static org.apache.commons.io.FileUtils.deleteDirectory;
+
+public class PersistentVersionCacheTest {
+
+    private final Logger logger = new ConsoleLogger(Logger.LEVEL_DEBUG, "test");
+
+    private File gitTestDir;
+
+    private Repository repository;
+
+    private ObjectId head;
+
+    @Before
+    public void setUp() throws IOException {
+        Path tmp = Files.createTempDirectory(UUID.randomUUID().toString());
+        copyDirectory(
+                new File(getClass().getClassLoader().getResource("init-with-release-and-chore-commit").getFile(), "git"),
+                new File(tmp.toFile(), ".git"));
+        gitTestDir = tmp.toFile();
+        repository = new FileRepositoryBuilder().findGitDir(gitTestDir).build();
+        head = repository.exactRef("HEAD").getObjectId();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        repository.close();
+        deleteDirectory(gitTestDir);
+    }
+
+    @Test
+    public void storesVersionPerHeadAndBranch() throws IOException {
+        Assert.assertEquals(Optional.empty(), PersistentVersionCache.of(logger, repository, head, "master").get());
+        PersistentVersionCache.of(logger, repository, head, "master").put("0.0.1");
+        Assert.assertEquals(Optional.of("0.0.1"), PersistentVersionCache.of(logger, repository, head, "master").get());
+        Assert.assertEquals(Optional.empty(), PersistentVersionCache.of(logger, repository, head, "support-1").get());
+    }
+
+    @Test
+    public void isInvalidatedByNewTags() throws IOException {
+        PersistentVersionCache.of(logger, repository, head, "master").put("0.0.1");
+        RefUpdate update = repository.updateRef("refs/tags/9.9.9");
+        update.setNewObjectId(head);
+        update.update();
+        Assert.assertEquals(Optional.empty(), PersistentVersionCache.of(logger, repository, head, "master").get());
+    }
+
+    @Test
+    public void isSharedByLinkedWorktrees() throws IOException {
+        File worktreeGitDir = new File(repository.getDirectory(), "worktrees/other");
+        Assert.assertTrue(worktreeGitDir.mkdirs());
+        Files.write(new File(worktreeGitDir, "commondir").toPath(), "../..\n".getBytes(StandardCharsets.UTF_8));
+        Assert.assertEquals(
+                repository.getDirectory().getCanonicalFile(),
+                PersistentVersionCache.commonDirectory(worktreeGitDir));
+    }
+
+}
@@ -0,0 +1,126 @@
+package de.kune.mvn.extension.version;
+
+import org.apache.maven.model.Model;
+import org.eclipse.jgit.api.Git;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class PomModelStoreTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @After
+    public void clear() {
+        PomModelStore.clear();
+    }
+
+    @Test
+    public void loadsEachPomOnce() throws Exception {
+        File pom = folder.newFile("pom.xml");
+        AtomicInteger loads = new AtomicInteger();
+        PomModelStore.ModelLoader loader = f -> {
+            loads.incrementAndGet();
+            return model("1.0.0");
+        };
+        Model first = PomModelStore.get(pom, loader);
+        Model second = PomModelStore.get(pom, loader);
+        Assert.assertSame(first, second);
+        Assert.assertEquals(1, loads.get());
+        Assert.assertSame(first, PomModelStore.get(pom).get());
+    }
+
+    @Test
+    public void reloadsChangedPom() throws Exception {
+        File pom = folder.newFile("pom.xml");
+        AtomicInteger loads = new AtomicInteger();
+        PomModelStore.ModelLoader loader = f -> model(String.valueOf(loads.incrementAndGet()));
+        PomModelStore.get(pom, loader);
+        Files.write(pom.toPath(), "<project/>".getBytes());
+        Assert.assertEquals("2", PomModelStore.get(pom, loader).getVersion());
+    }
+
+    @Test
+    public void reloadsPomOfChangedRepository() throws Exception {
+        try (Git git = Git.init().setDirectory(folder.getRoot()).call()) {
+            git.commit().setMessage("chore: initial commit").call();
+            File pom = folder.newFile("pom.xml");
+            AtomicInteger loads = new AtomicInteger();
+            PomModelStore.ModelLoader loader = f -> model(String.valueOf(loads.incrementAndGet()));
+            Assert.assertEquals("1", PomModelStore.get(pom, loader).getVersion());
+            Assert.assertEquals("1", PomModelStore.get(pom, loader).getVersion());
+            git.commit().setMessage("fix: something").call();
+            Assert.assertEquals("2", PomModelStore.get(pom, loader).getVersion());
+        } finally {
+            RepositoryRegistry.closeAll();
+        }
+    }
+
+    @Test
+    public void loadsEachVariantSeparately() throws Exception {
+        File pom = folder.newFile("pom.xml");
+        AtomicInteger loads = new AtomicInteger();
+        PomModelStore.ModelLoader loader = f -> model(String.valueOf(loads.incrementAndGet()));
+        Assert.assertEquals("1", PomModelStore.get(pom, "lenient", loader).getVersion());
+        Assert.assertEquals("2", PomModelStore.get(pom, "strict", loader).getVersion());
+        Assert.assertEquals("1", PomModelStore.get(pom, "lenient", loader).getVersion());
+        Assert.assertEquals("1", PomModelStore.get(pom).get().getVersion());
+    }
+
+    @Test
+    public void loadsConcurrentlyReadPomOnce() throws Exception {
+        File pom = folder.newFile("pom.xml");
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch loading = new CountDownLatch(1);
+        PomModelStore.ModelLoader loader = f -> {
+            loads.incrementAndGet();
+            loading.countDown();
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return model("1.0.0");
+        };
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<Model> first = executor.submit(() -> PomModelStore.get(pom, loader));
+            loading.await();
+            Future<Model> second = executor.submit(() -> PomModelStore.get(pom, loader));
+            Assert.assertSame(first.get(), second.get());
+            Assert.assertEquals(1, loads.get());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void writesOnlyChangedContent() throws Exception {
+        File versionedPom = new File(folder.getRoot(), "versioned-pom.xml");
+        Assert.assertTrue(PomModelStore.writeIfChanged(versionedPom, model("1.0.0")));
+        Assert.assertFalse(PomModelStore.writeIfChanged(versionedPom, model("1.0.0")));
+        Assert.assertTrue(PomModelStore.writeIfChanged(versionedPom, model("1.0.1")));
+        Assert.assertArrayEquals(new String[] { "versioned-pom.xml" }, folder.getRoot().list());
+    }
+
+    private static Model model(String version) {
+        Model model = new Model();
+        model.setModelVersion("4.0.0");
+        model.setGroupId("group");
+        model.setArtifactId("artifact");
+        model.setVersion(version);
+        return model;
+    }
+
+}
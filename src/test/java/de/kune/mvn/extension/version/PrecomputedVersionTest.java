@@ -0,0 +1,103 @@
+package de.kune.mvn.extension.version;
+
+import org.codehaus.plexus.logging.Logger;
+import org.codehaus.plexus.logging.console.ConsoleLogger;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.apache.commons.io.FileUtils.deleteDirectory;
+
+public class PrecomputedVersionTest {
+
+    private final Logger logger = new ConsoleLogger(Logger.LEVEL_INFO, "test");
+
+    private File directory;
+
+    private File file;
+
+    private Git git;
+
+    @Before
+    public void setUp() throws IOException, GitAPIException {
+        directory = Files.createTempDirectory(UUID.randomUUID().toString()).toFile();
+        file = new File(directory, "target/version.properties");
+        git = Git.init().setDirectory(directory).call();
+        git.commit().setMessage("chore: initial commit").call();
+        System.setProperty(PrecomputedVersion.PRECOMPUTED_PROPERTY, file.getPath());
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        System.clearProperty(PrecomputedVersion.PRECOMPUTED_PROPERTY);
+        System.clearProperty(GitDevFlow.MODULE_SCOPED_PROPERTY);
+        git.close();
+        PrecomputedVersion.clear();
+        RepositoryRegistry.closeAll();
+        deleteDirectory(directory);
+    }
+
+    @Test
+    public void usesExportedVersionOfSameHead() throws IOException {
+        PrecomputedVersion.export(directory, "1.2.3", file);
+        Assert.assertEquals(Optional.of("1.2.3"), PrecomputedVersion.of(logger, new File(directory, "module")));
+    }
+
+    @Test
+    public void ignoresExportedVersionOfOtherCommit() throws IOException, GitAPIException {
+        PrecomputedVersion.export(directory, "1.2.3", file);
+        git.commit().setMessage("fix: something").call();
+        Assert.assertEquals(Optional.empty(), PrecomputedVersion.of(logger, directory));
+    }
+
+    @Test
+    public void ignoresExportedVersionOfOtherBranch() throws IOException, GitAPIException {
+        PrecomputedVersion.export(directory, "1.2.3", file);
+        git.checkout().setCreateBranch(true).setName("develop").call();
+        Assert.assertEquals(Optional.empty(), PrecomputedVersion.of(logger, directory));
+    }
+
+    @Test
+    public void ignoresExportedVersionOfOtherTags() throws IOException, GitAPIException {
+        PrecomputedVersion.export(directory, "1.2.3", file);
+        git.tag().setName("1.2.3").setAnnotated(true).setMessage("1.2.3").call();
+        Assert.assertEquals(Optional.empty(), PrecomputedVersion.of(logger, directory));
+    }
+
+    @Test
+    public void ignoresExportedVersionForModuleScopedVersions() throws IOException {
+        PrecomputedVersion.export(directory, "1.2.3", file);
+        System.setProperty(GitDevFlow.MODULE_SCOPED_PROPERTY, "true");
+        Assert.assertEquals(Optional.empty(), PrecomputedVersion.of(logger, directory));
+    }
+
+    @Test
+    public void usesEnvironment() throws IOException, GitAPIException {
+        System.clearProperty(PrecomputedVersion.PRECOMPUTED_PROPERTY);
+        git.tag().setName("1.0.0").setAnnotated(true).setMessage("1.0.0").call();
+        git.tag().setName("0.9.0").call();
+        Map<String, String> environment = new HashMap<>();
+        Assert.assertEquals(Optional.empty(), PrecomputedVersion.of(logger, directory, environment::get));
+        environment.put(PrecomputedVersion.VERSION_VARIABLE, "2.0.0");
+        environment.put(PrecomputedVersion.HEAD_VARIABLE, git.getRepository().resolve("HEAD").getName());
+        environment.put(PrecomputedVersion.BRANCH_VARIABLE, "master");
+        Assert.assertEquals(Optional.empty(), PrecomputedVersion.of(logger, directory, environment::get));
+        PrecomputedVersion.clear();
+        environment.put(
+                PrecomputedVersion.TAGS_VARIABLE,
+                GitDevFlow.TagIndex.load(git.getRepository()).fingerprint());
+        Assert.assertEquals(Optional.of("2.0.0"), PrecomputedVersion.of(logger, directory, environment::get));
+    }
+
+}
@@ -0,0 +1,114 @@
+package de.kune.mvn.extension.version;
+
+import org.apache.maven.model.Model;
+import org.apache.maven.model.building.FileModelSource;
+import org.apache.maven.model.building.ModelProcessor;
+import org.apache.maven.model.io.DefaultModelReader;
+import org.apache.maven.session.scope.internal.SessionScope;
+import org.codehaus.plexus.logging.Logger;
+import org.codehaus.plexus.logging.console.ConsoleLogger;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.UUID;
+
+import static org.apache.commons.io.FileUtils.deleteDirectory;
+
+/**
+ * Reads the models of a many-module reactor through {@link MavenVersionExtension} and checks that the cost stays
+ * sublinear in the number of modules: the version is resolved once, further modules only cost parsing.
+ */
+public class ReactorScaleIT {
+
+    private static final int MODULES = Integer.getInteger("scale-test.modules", 500);
+
+    private final Logger logger = new ConsoleLogger(Logger.LEVEL_WARN, "scale-test");
+
+    private File directory;
+
+    @Before
+    public void setUp() throws IOException {
+        System.setProperty(PersistentVersionCache.CACHE_PROPERTY, "false");
+        System.setProperty(ReleaseAncestryIndex.ANCESTRY_INDEX_PROPERTY, "false");
+        directory = Files.createTempDirectory(UUID.randomUUID().toString()).toFile();
+        new SyntheticRepository()
+                .withCommits(GitDevFlowScaleIT.COMMITS / 10)
+                .withUntagged(GitDevFlowScaleIT.UNTAGGED / 10)
+                .withTags(GitDevFlowScaleIT.TAGS / 10, true)
+                .create(directory);
+        for (int i = 0; i < MODULES; i++) {
+            File module = new File(directory, "module-" + i);
+            Files.createDirectories(module.toPath());
+            Files.write(new File(module, "pom.xml").toPath(), pom(i).getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        System.clearProperty(PersistentVersionCache.CACHE_PROPERTY);
+        System.clearProperty(ReleaseAncestryIndex.ANCESTRY_INDEX_PROPERTY);
+        endSession();
+        deleteDirectory(directory);
+    }
+
+    @Test
+    public void costIsSublinearInModules() throws IOException {
+        readModules(1);
+        endSession();
+        long one = readModules(1);
+        endSession();
+        long all = readModules(MODULES);
+        System.out.println("1 module in " + one / 1000000 + " ms, " + MODULES + " modules in " + all / 1000000 + " ms");
+        Assert.assertTrue(
+                MODULES + " modules took " + all / 1000000 + " ms, 1 module " + one / 1000000 + " ms",
+                all < one * MODULES / 4);
+    }
+
+    private long readModules(int modules) throws IOException {
+        MavenVersionExtension extension = new MavenVersionExtension(logger, new SessionScope());
+        extension.setModelReader(new DefaultModelReader());
+        long start = System.nanoTime();
+        String version = null;
+        for (int i = 0; i < modules; i++) {
+            File pom = new File(directory, "module-" + i + "/pom.xml");
+            Model model = extension.read(
+                    pom,
+                    Collections.singletonMap(ModelProcessor.SOURCE, new FileModelSource(pom)));
+            Assert.assertTrue(model.getVersion().matches("\\d+\\.\\d+\\.\\d+"));
+            Assert.assertTrue(version == null || version.equals(model.getVersion()));
+            version = model.getVersion();
+        }
+        return System.nanoTime() - start;
+    }
+
+    private static void endSession() {
+        PomModelStore.clear();
+        VersionExtensionRegistry.clear();
+        GitDevFlow.clearVersionsCache();
+        RepositoryRegistry.closeAll();
+    }
+
+    private static String pom(int module) {
+        return "<project>\n"
+                + "  <modelVersion>4.0.0</modelVersion>\n"
+                + "  <groupId>de.kune.scale</groupId>\n"
+                + "  <artifactId>module-" + module + "</artifactId>\n"
+                + "  <version>#{version-extension[git-dev-flow]}</version>\n"
+                + "  <dependencies>\n"
+                + "    <dependency>\n"
+                + "      <groupId>de.kune.scale</groupId>\n"
+                + "      <artifactId>module-" + Math.max(0, module - 1) + "</artifactId>\n"
+                + "      <version>#{version-extension[git-dev-flow]}</version>\n"
+                + "    </dependency>\n"
+                + "  </dependencies>\n"
+                + "</project>\n";
+    }
+
+}
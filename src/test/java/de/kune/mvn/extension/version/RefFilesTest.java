@@ -0,0 +1,130 @@
+package de.kune.mvn.extension.version;
+
+import org.codehaus.plexus.logging.Logger;
+import org.codehaus.plexus.logging.console.ConsoleLogger;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.apache.commons.io.FileUtils.deleteDirectory;
+
+public class RefFilesTest {
+
+    private final Logger logger = new ConsoleLogger(Logger.LEVEL_INFO, "test");
+
+    private File directory;
+
+    private Git git;
+
+    @Before
+    public void setUp() throws IOException, GitAPIException {
+        System.setProperty(PersistentVersionCache.CACHE_PROPERTY, "false");
+        directory = Files.createTempDirectory(UUID.randomUUID().toString()).toFile();
+        git = Git.init().setDirectory(directory).call();
+        git.commit().setMessage("chore: initial commit").call();
+        git.tag().setName("1.0.0").setAnnotated(false).call();
+        git.commit().setMessage("feat: something").call();
+        git.checkout().setCreateBranch(true).setName("develop").call();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        System.clearProperty(PersistentVersionCache.CACHE_PROPERTY);
+        git.close();
+        GitDevFlow.clearVersionsCache();
+        RepositoryRegistry.closeAll();
+        deleteDirectory(directory);
+    }
+
+    @Test
+    public void resolvesSnapshotBranch() throws GitAPIException {
+        git.checkout().setCreateBranch(true).setName("feature-something").call();
+        Assert.assertEquals(Optional.of("feature-something-SNAPSHOT"), GitDevFlow.determineVersionFromRefFiles(logger, directory));
+    }
+
+    @Test
+    public void peelsLooseTagsOnceResolvedByFullEngine() {
+        Assert.assertEquals(Optional.empty(), GitDevFlow.determineVersionFromRefFiles(logger, directory));
+        Assert.assertEquals("develop-SNAPSHOT", determineVersionWithFullEngine());
+        Assert.assertEquals(Optional.of("develop-SNAPSHOT"), GitDevFlow.determineVersionFromRefFiles(logger, directory));
+    }
+
+    @Test
+    public void resolvesPackedTags() throws IOException {
+        Files.write(
+                new File(directory, ".git/packed-refs").toPath(),
+                ("# pack-refs with: peeled fully-peeled sorted \n"
+                        + git.getRepository().exactRef("refs/tags/1.0.0").getObjectId().getName() + " refs/tags/1.0.0\n")
+                        .getBytes(StandardCharsets.US_ASCII));
+        Files.delete(new File(directory, ".git/refs/tags/1.0.0").toPath());
+        Assert.assertEquals(Optional.of("develop-SNAPSHOT"), GitDevFlow.determineVersionFromRefFiles(logger, directory));
+    }
+
+    @Test
+    public void leavesReleaseBranchToFullEngine() throws GitAPIException {
+        Assert.assertEquals(Optional.empty(), versionOnBranch("master"));
+    }
+
+    @Test
+    public void resolvesTagsOfHead() throws GitAPIException {
+        determineVersionWithFullEngine();
+        git.tag().setName("1.1.0").setAnnotated(false).call();
+        Assert.assertEquals(Optional.of("1.1.0"), GitDevFlow.determineVersionFromRefFiles(logger, directory));
+        git.tag().setName("1.2.0").setAnnotated(true).setMessage("1.2.0").call();
+        Assert.assertEquals(Optional.empty(), GitDevFlow.determineVersionFromRefFiles(logger, directory));
+        Assert.assertEquals("1.2.0", determineVersionWithFullEngine());
+        Assert.assertEquals(Optional.of("1.2.0"), GitDevFlow.determineVersionFromRefFiles(logger, directory));
+    }
+
+    @Test
+    public void followsGitdirFile() throws IOException {
+        File gitDirectory = new File(directory.getParentFile(), directory.getName() + "-git");
+        try {
+            git.close();
+            Files.move(new File(directory, ".git").toPath(), gitDirectory.toPath());
+            Files.write(
+                    new File(directory, ".git").toPath(),
+                    ("gitdir: " + gitDirectory.getAbsolutePath() + "\n").getBytes(StandardCharsets.UTF_8));
+            Assert.assertEquals("develop-SNAPSHOT", determineVersionWithFullEngine());
+            Assert.assertEquals(Optional.of("develop-SNAPSHOT"), GitDevFlow.determineVersionFromRefFiles(logger, directory));
+        } finally {
+            deleteDirectory(gitDirectory);
+        }
+    }
+
+    @Test
+    public void looksUpVersionsCacheBeforeRefFiles() {
+        Assert.assertEquals("develop-SNAPSHOT", GitDevFlow.determineVersion(logger, directory));
+        ResolutionMetrics.reset();
+        Assert.assertEquals("develop-SNAPSHOT", GitDevFlow.determineVersion(logger, directory));
+        Assert.assertEquals(1, ResolutionMetrics.Counter.CACHE_HITS.get());
+        Assert.assertEquals(0, ResolutionMetrics.Phase.TAGS.getCalls());
+        Assert.assertEquals(0, ResolutionMetrics.Phase.BRANCH.getCalls());
+    }
+
+    private String determineVersionWithFullEngine() {
+        System.setProperty(GitDevFlow.FAST_PATH_PROPERTY, "false");
+        try {
+            GitDevFlow.clearVersionsCache();
+            return GitDevFlow.determineVersion(logger, directory);
+        } finally {
+            System.clearProperty(GitDevFlow.FAST_PATH_PROPERTY);
+        }
+    }
+
+    private Optional<String> versionOnBranch(String branch) throws GitAPIException {
+        git.checkout().setName(branch).call();
+        return GitDevFlow.determineVersionFromRefFiles(logger, directory);
+    }
+
+}
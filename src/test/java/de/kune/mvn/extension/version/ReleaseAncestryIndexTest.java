@@ -0,0 +1,148 @@
+package de.kune.mvn.extension.version;
+
+import de.kune.mvn.extension.version.GitDevFlow.Increment;
+import de.kune.mvn.extension.version.GitDevFlow.SemVer;
+import de.kune.mvn.extension.version.ReleaseAncestryIndex.Checkpoint;
+import org.codehaus.plexus.logging.Logger;
+import org.codehaus.plexus.logging.console.ConsoleLogger;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.apache.commons.io.FileUtils.copyDirectory;
+import static org.apache.commons.io.FileUtils.deleteDirectory;
+
+public class ReleaseAncestryIndexTest {
+
+    private final Logger logger = new ConsoleLogger(Logger.LEVEL_DEBUG, "test");
+
+    private final List<File> directories = new ArrayList<>();
+
+    private Git git;
+
+    @Before
+    public void setUp() throws IOException, GitAPIException {
+        System.setProperty(PersistentVersionCache.CACHE_PROPERTY, "false");
+        git = Git.init().setDirectory(newDirectory()).call();
+        git.commit().setMessage("chore: initial commit").call();
+        git.tag().setName("1.0.0").call();
+        git.commit().setMessage("fix: something").call();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        System.clearProperty(PersistentVersionCache.CACHE_PROPERTY);
+        git.close();
+        for (File directory : directories) {
+            deleteDirectory(directory);
+        }
+    }
+
+    @Test
+    public void storesCheckpointForResolvedHead() throws IOException {
+        Assert.assertEquals("1.0.1", resolve());
+        Checkpoint checkpoint = ReleaseAncestryIndex.open(logger, git.getRepository(), false).get(head()).get();
+        Assert.assertEquals("1.0.0", checkpoint.getRelease().getVersion());
+        Assert.assertEquals(1, checkpoint.getDistance());
+        Assert.assertEquals(Increment.PATCH, checkpoint.getIncrement());
+        Assert.assertEquals(1, checkpoint.getCommits());
+    }
+
+    @Test
+    public void stopsWalkingAtCheckpoint() throws IOException, GitAPIException {
+        ReleaseAncestryIndex index = ReleaseAncestryIndex.open(logger, git.getRepository(), false);
+        index.put(head(), new Checkpoint(SemVer.of("2.0.0"), 1, Increment.MAJOR, 1));
+        index.save();
+        git.commit().setMessage("fix: something else").call();
+        Assert.assertEquals("3.0.0", resolve());
+    }
+
+    @Test
+    public void discardsCheckpointsWhenTagsChange() throws IOException, GitAPIException {
+        ReleaseAncestryIndex index = ReleaseAncestryIndex.open(logger, git.getRepository(), false);
+        index.put(head(), new Checkpoint(SemVer.of("2.0.0"), 1, Increment.MAJOR, 1));
+        index.save();
+        git.tag().setName("other").call();
+        Assert.assertFalse(ReleaseAncestryIndex.open(logger, git.getRepository(), false).get(head()).isPresent());
+        Assert.assertEquals("1.0.1", resolve());
+    }
+
+    @Test
+    public void resolvesTiesLikeWithoutCheckpoints() throws IOException {
+        assertTieResolvedLikeWithoutCheckpoints(false);
+    }
+
+    @Test
+    public void resolvesTiesLikeWithoutCheckpointsInCommitGraph() throws IOException {
+        assertTieResolvedLikeWithoutCheckpoints(true);
+    }
+
+    /**
+     * Resolves a merge of a commit right above release 1.1.0 (first parent) and a checkpointed commit right above
+     * release 1.0.0 (second parent), both releases being at distance 2.
+     */
+    private void assertTieResolvedLikeWithoutCheckpoints(boolean commitGraph) throws IOException {
+        File cold = newDirectory();
+        copyDirectory(testCase("merged-release-tie"), new File(cold, ".git"));
+        File warm = newDirectory();
+        copyDirectory(testCase("merged-release-tie"), new File(warm, ".git"));
+        System.setProperty(CommitGraph.COMMIT_GRAPH_PROPERTY, String.valueOf(commitGraph));
+        try (Git warmGit = Git.open(warm)) {
+            Repository repository = warmGit.getRepository();
+            ReleaseAncestryIndex index = ReleaseAncestryIndex.open(logger, repository, false);
+            ObjectId secondParent = repository.resolve("HEAD^2");
+            index.put(secondParent, new Checkpoint(SemVer.of("1.0.0"), 1, Increment.PATCH, 1));
+            index.save();
+            Checkpoint nearest = GitDevFlow.latestReachableReleaseTag(
+                    logger,
+                    repository,
+                    GitDevFlow.TagIndex.load(repository),
+                    ReleaseAncestryIndex.open(logger, repository, false),
+                    false);
+            Assert.assertEquals("1.1.0", nearest.getRelease().getVersion());
+            Assert.assertEquals(2, nearest.getDistance());
+            Assert.assertEquals("1.1.1", GitDevFlow.determineVersion(logger, cold));
+            Assert.assertEquals("1.1.1", GitDevFlow.determineVersion(logger, warm));
+        } finally {
+            System.clearProperty(CommitGraph.COMMIT_GRAPH_PROPERTY);
+            GitDevFlow.clearVersionsCache();
+            RepositoryRegistry.closeAll();
+        }
+    }
+
+    private static File testCase(String testCase) {
+        return new File(ReleaseAncestryIndexTest.class.getClassLoader().getResource(testCase).getFile(), "git");
+    }
+
+    private ObjectId head() throws IOException {
+        return git.getRepository().exactRef("HEAD").getObjectId();
+    }
+
+    private String resolve() throws IOException {
+        File copy = newDirectory();
+        copyDirectory(git.getRepository().getWorkTree(), copy);
+        String version = GitDevFlow.determineVersion(logger, copy);
+        copyDirectory(new File(copy, ".git/" + PersistentVersionCache.STATE_DIRECTORY),
+                new File(git.getRepository().getDirectory(), PersistentVersionCache.STATE_DIRECTORY));
+        return version;
+    }
+
+    private File newDirectory() throws IOException {
+        File directory = Files.createTempDirectory(UUID.randomUUID().toString()).toFile();
+        directories.add(directory);
+        return directory;
+    }
+
+}
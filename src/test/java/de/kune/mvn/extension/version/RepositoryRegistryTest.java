@@ -0,0 +1,54 @@
+package de.kune.mvn.extension.version;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.lib.Repository;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.UUID;
+
+import static org.apache.commons.io.FileUtils.deleteDirectory;
+
+public class RepositoryRegistryTest {
+
+    private File root;
+
+    @Before
+    public void setUp() throws IOException, GitAPIException {
+        root = Files.createTempDirectory(UUID.randomUUID().toString()).toFile();
+        Git.init().setDirectory(root).call().close();
+        Assert.assertTrue(new File(root, "module-a/sub").mkdirs());
+        Assert.assertTrue(new File(root, "module-b").mkdirs());
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        RepositoryRegistry.closeAll();
+        deleteDirectory(root);
+    }
+
+    @Test
+    public void sharesOneRepositoryPerGitDirectory() throws IOException {
+        Repository a = RepositoryRegistry.repository(new File(root, "module-a/sub")).get();
+        Repository b = RepositoryRegistry.repository(new File(root, "module-b")).get();
+        Assert.assertSame(a, b);
+        Assert.assertEquals(new File(root, ".git").getAbsoluteFile(), a.getDirectory().getAbsoluteFile());
+    }
+
+    @Test
+    public void memoizesRepositoryDirectoryOfVisitedDirectories() throws IOException {
+        File sub = new File(root, "module-a/sub");
+        Assert.assertEquals(root.getAbsoluteFile(), RepositoryRegistry.repositoryDirectory(sub).get());
+        deleteDirectory(new File(root, ".git"));
+        Assert.assertEquals(root.getAbsoluteFile(), RepositoryRegistry.repositoryDirectory(sub).get());
+        RepositoryRegistry.closeAll();
+        Assert.assertNotEquals(root.getAbsoluteFile(), RepositoryRegistry.repositoryDirectory(sub).orElse(null));
+    }
+
+}
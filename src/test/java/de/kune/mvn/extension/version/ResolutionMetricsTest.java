@@ -0,0 +1,91 @@
+package de.kune.mvn.extension.version;
+
+import de.kune.mvn.extension.version.ResolutionMetrics.Counter;
+import de.kune.mvn.extension.version.ResolutionMetrics.Phase;
+import org.codehaus.plexus.logging.Logger;
+import org.codehaus.plexus.logging.console.ConsoleLogger;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.UUID;
+
+import static org.apache.commons.io.FileUtils.deleteDirectory;
+
+public class ResolutionMetricsTest {
+
+    private final Logger logger = new ConsoleLogger(Logger.LEVEL_INFO, "test");
+
+    private File directory;
+
+    private Git git;
+
+    @Before
+    public void setUp() throws IOException, GitAPIException {
+        System.setProperty(PersistentVersionCache.CACHE_PROPERTY, "false");
+        directory = Files.createTempDirectory(UUID.randomUUID().toString()).toFile();
+        git = Git.init().setDirectory(directory).call();
+        git.commit().setMessage("chore: initial commit").call();
+        git.tag().setName("1.0.0").setAnnotated(true).setMessage("1.0.0").call();
+        git.commit().setMessage("feat: something").call();
+        git.commit().setMessage("fix: something").call();
+        ResolutionMetrics.reset();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        System.clearProperty(PersistentVersionCache.CACHE_PROPERTY);
+        System.clearProperty(ResolutionMetrics.METRICS_PROPERTY);
+        System.clearProperty(ResolutionMetrics.METRICS_REPORT_PROPERTY);
+        git.close();
+        GitDevFlow.clearVersionsCache();
+        RepositoryRegistry.closeAll();
+        ResolutionMetrics.reset();
+        deleteDirectory(directory);
+    }
+
+    @Test
+    public void recordsPhasesAndCounters() {
+        Assert.assertEquals("1.1.0", GitDevFlow.determineVersion(logger, directory));
+        Assert.assertEquals(1, Phase.FIRST_PARENT_WALK.getCalls());
+        Assert.assertEquals(1, Phase.REACHABLE_TAG_WALK.getCalls());
+        Assert.assertEquals(2, Phase.CLASSIFICATION.getCalls());
+        Assert.assertTrue(Phase.BRANCH.getNanos() > 0);
+        Assert.assertTrue(Counter.COMMITS_PARSED.get() >= 3);
+        Assert.assertEquals(1, Counter.TAGS_SCANNED.get());
+        Assert.assertTrue(Counter.OBJECTS_READ.get() > Counter.COMMITS_PARSED.get());
+        Assert.assertEquals(1, Counter.CACHE_MISSES.get());
+        Assert.assertEquals("1.1.0", GitDevFlow.determineVersion(logger, directory));
+        Assert.assertEquals(1, Counter.CACHE_HITS.get());
+        Assert.assertEquals(1, Phase.FIRST_PARENT_WALK.getCalls());
+    }
+
+    @Test
+    public void publishesNothingByDefault() {
+        GitDevFlow.determineVersion(logger, directory);
+        ResolutionMetrics.publish(logger, directory);
+        Assert.assertFalse(new File(directory, ResolutionMetrics.DEFAULT_REPORT).exists());
+        Assert.assertEquals(0, Counter.CACHE_MISSES.get());
+    }
+
+    @Test
+    public void publishesReport() throws IOException {
+        GitDevFlow.determineVersion(logger, directory);
+        System.setProperty(ResolutionMetrics.METRICS_PROPERTY, "true");
+        System.setProperty(ResolutionMetrics.METRICS_REPORT_PROPERTY, "target/metrics.json");
+        ResolutionMetrics.publish(logger, directory);
+        String report = new String(Files.readAllBytes(new File(directory, "target/metrics.json").toPath()), StandardCharsets.UTF_8);
+        Assert.assertTrue(report, report.contains("\"first-parent-walk\": { \"nanos\": "));
+        Assert.assertTrue(report, report.contains("\"cache-misses\": 1"));
+        Assert.assertEquals(0, Counter.CACHE_MISSES.get());
+        Assert.assertTrue(ResolutionMetrics.summary().startsWith("Version resolution: commits-parsed=0"));
+    }
+
+}
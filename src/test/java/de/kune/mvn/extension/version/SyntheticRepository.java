@@ -0,0 +1,198 @@
+package de.kune.mvn.extension.version;
+
+import org.eclipse.jgit.lib.CommitBuilder;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectInserter;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.lib.RefUpdate;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.lib.TagBuilder;
+import org.eclipse.jgit.lib.TreeFormatter;
+import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Generator of synthetic git repositories for benchmarks and scale tests. The main line ({@code master}) consists of
+ * the configured number of commits; every {@code mergeEvery} commits one of them is a merge with
+ * {@code fanIn - 1} side branches of two commits each, and every {@code crissCrossEvery} commits the main line and a
+ * long-lived second line merge each other (criss-cross merges). Release tags {@code 0.<n>.0} are spread over the main line
+ * except for the {@code untagged} newest commits, so that walks from HEAD have to visit at least that many commits.
+ * Commit messages cycle through feature, fix and unspecified commits and are padded to {@code messageSize} characters.
+ */
+public class SyntheticRepository {
+
+    private static final String[] SUBJECTS = { "feat(core): add something", "fix: repair something", "update" };
+
+    private int commits = 1000;
+
+    private int untagged = 100;
+
+    private int mergeEvery = 0;
+
+    private int fanIn = 2;
+
+    private int crissCrossEvery = 0;
+
+    private int tags = 10;
+
+    private boolean annotatedTags = false;
+
+    private int messageSize = 80;
+
+    public SyntheticRepository withCommits(int commits) {
+        this.commits = commits;
+        return this;
+    }
+
+    public SyntheticRepository withUntagged(int untagged) {
+        this.untagged = untagged;
+        return this;
+    }
+
+    public SyntheticRepository withMerges(int mergeEvery, int fanIn) {
+        this.mergeEvery = mergeEvery;
+        this.fanIn = fanIn;
+        return this;
+    }
+
+    public SyntheticRepository withCrissCrossMerges(int crissCrossEvery) {
+        this.crissCrossEvery = crissCrossEvery;
+        return this;
+    }
+
+    public SyntheticRepository withTags(int tags, boolean annotated) {
+        this.tags = tags;
+        this.annotatedTags = annotated;
+        return this;
+    }
+
+    public SyntheticRepository withMessageSize(int messageSize) {
+        this.messageSize = messageSize;
+        return this;
+    }
+
+    /**
+     * Creates the repository in the given (empty or not existing) working directory.
+     */
+    public void create(File directory) throws IOException {
+        try (Repository repository = FileRepositoryBuilder.create(new File(directory, Constants.DOT_GIT))) {
+            repository.create();
+            List<ObjectId> mainLine = new ArrayList<>(commits);
+            Map<String, ObjectId> tagTargets = new TreeMap<>();
+            Map<String, ObjectId> peeledTargets = new HashMap<>();
+            ObjectId previous = null;
+            ObjectId other = null;
+            try (ObjectInserter inserter = repository.newObjectInserter()) {
+                ObjectId tree = inserter.insert(new TreeFormatter());
+                for (int i = 0; i < commits; i++) {
+                    List<ObjectId> parents = new ArrayList<>();
+                    if (previous != null) {
+                        parents.add(previous);
+                        if (mergeEvery > 0 && i % mergeEvery == 0) {
+                            for (int b = 1; b < fanIn; b++) {
+                                ObjectId side = commit(inserter, tree, message(i * 31 + b), previous);
+                                parents.add(commit(inserter, tree, message(i * 31 + b + 1), side));
+                            }
+                        }
+                        if (crissCrossEvery > 0 && i % crissCrossEvery == 0) {
+                            if (other == null) {
+                                other = commit(inserter, tree, message(i * 31 + 1), previous);
+                            }
+                            parents.add(other);
+                            other = commit(inserter, tree, message(i * 31), other, previous);
+                        }
+                    }
+                    previous = commit(inserter, tree, message(i), parents.toArray(new ObjectId[0]));
+                    mainLine.add(previous);
+                }
+                int taggable = Math.max(0, commits - untagged);
+                for (int t = 0; t < tags && taggable > 0; t++) {
+                    ObjectId tagged = mainLine.get((int) ((long) t * taggable / tags));
+                    String name = "0." + t + ".0";
+                    ObjectId target = tagged;
+                    if (annotatedTags) {
+                        TagBuilder tag = new TagBuilder();
+                        tag.setTag(name);
+                        tag.setObjectId(tagged, Constants.OBJ_COMMIT);
+                        tag.setTagger(ident(t));
+                        tag.setMessage("Release " + name + "\n");
+                        target = inserter.insert(tag);
+                        peeledTargets.put(Constants.R_TAGS + name, tagged);
+                    }
+                    tagTargets.put(Constants.R_TAGS + name, target);
+                }
+                inserter.flush();
+            }
+            writePackedTags(repository, tagTargets, peeledTargets);
+            if (previous != null) {
+                update(repository, Constants.R_HEADS + "master", previous);
+            }
+        }
+    }
+
+    private static ObjectId commit(ObjectInserter inserter, ObjectId tree, String message, ObjectId... parents)
+            throws IOException {
+        CommitBuilder commit = new CommitBuilder();
+        commit.setTreeId(tree);
+        commit.setParentIds(parents);
+        commit.setAuthor(ident(message.length()));
+        commit.setCommitter(ident(message.length()));
+        commit.setMessage(message);
+        return inserter.insert(commit);
+    }
+
+    private String message(int i) {
+        StringBuilder message = new StringBuilder(SUBJECTS[Math.floorMod(i, SUBJECTS.length)]).append(' ').append(i);
+        if (message.length() < messageSize) {
+            message.append("\n\n");
+            while (message.length() < messageSize) {
+                message.append("Lorem ipsum dolor sit amet. ");
+            }
+            message.setLength(messageSize);
+        }
+        return message.append('\n').toString();
+    }
+
+    private static PersonIdent ident(int seed) {
+        return new PersonIdent("Synthetic", "synthetic@example.org", 1500000000000L + seed * 1000L, 0);
+    }
+
+    /**
+     * Writes all tags into {@code packed-refs} at once, as {@code git pack-refs} would; creating thousands of loose
+     * refs one by one takes quadratic time in JGit.
+     */
+    private static void writePackedTags(Repository repository, Map<String, ObjectId> tags, Map<String, ObjectId> peeled)
+            throws IOException {
+        StringBuilder packedRefs = new StringBuilder("# pack-refs with: peeled fully-peeled sorted \n");
+        for (Map.Entry<String, ObjectId> tag : tags.entrySet()) {
+            packedRefs.append(tag.getValue().getName()).append(' ').append(tag.getKey()).append('\n');
+            if (peeled.containsKey(tag.getKey())) {
+                packedRefs.append('^').append(peeled.get(tag.getKey()).getName()).append('\n');
+            }
+        }
+        Files.write(
+                new File(repository.getDirectory(), Constants.PACKED_REFS).toPath(),
+                packedRefs.toString().getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private static void update(Repository repository, String name, ObjectId id) throws IOException {
+        RefUpdate update = repository.updateRef(name);
+        update.setNewObjectId(id);
+        update.setForceUpdate(true);
+        RefUpdate.Result result = update.update();
+        if (result != RefUpdate.Result.NEW && result != RefUpdate.Result.FORCED) {
+            throw new IOException("Could not update " + name + ": " + result);
+        }
+    }
+
+}
@@ -0,0 +1,47 @@
+package de.kune.mvn.extension.version;
+
+import org.codehaus.plexus.logging.Logger;
+import org.codehaus.plexus.logging.console.ConsoleLogger;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.UUID;
+
+import static org.apache.commons.io.FileUtils.deleteDirectory;
+
+public class SyntheticRepositoryTest {
+
+    private final Logger logger = new ConsoleLogger(Logger.LEVEL_INFO, "test");
+
+    private File directory;
+
+    @Before
+    public void setUp() throws IOException {
+        System.setProperty(PersistentVersionCache.CACHE_PROPERTY, "false");
+        directory = Files.createTempDirectory(UUID.randomUUID().toString()).toFile();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        System.clearProperty(PersistentVersionCache.CACHE_PROPERTY);
+        RepositoryRegistry.closeAll();
+        deleteDirectory(directory);
+    }
+
+    @Test
+    public void createsResolvableRepository() throws IOException {
+        new SyntheticRepository()
+                .withCommits(10)
+                .withUntagged(3)
+                .withMerges(2, 3)
+                .withTags(2, true)
+                .create(directory);
+        Assert.assertEquals("0.2.0", GitDevFlow.determineVersion(logger, directory));
+    }
+
+}
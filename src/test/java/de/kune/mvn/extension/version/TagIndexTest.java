@@ -0,0 +1,106 @@
+package de.kune.mvn.extension.version;
+
+import de.kune.mvn.extension.version.GitDevFlow.SemVer;
+import de.kune.mvn.extension.version.GitDevFlow.TagIndex;
+import org.codehaus.plexus.logging.Logger;
+import org.codehaus.plexus.logging.console.ConsoleLogger;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.lib.ObjectId;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.UUID;
+
+import static org.apache.commons.io.FileUtils.deleteDirectory;
+
+public class TagIndexTest {
+
+    private final Logger logger = new ConsoleLogger(Logger.LEVEL_INFO, "test");
+
+    private File directory;
+
+    private Git git;
+
+    private ObjectId first;
+
+    private ObjectId second;
+
+    @Before
+    public void setUp() throws IOException, GitAPIException {
+        System.setProperty(PersistentVersionCache.CACHE_PROPERTY, "false");
+        directory = Files.createTempDirectory(UUID.randomUUID().toString()).toFile();
+        git = Git.init().setDirectory(directory).call();
+        first = git.commit().setMessage("chore: initial commit").call();
+        git.tag().setName("release/1.0.0").setAnnotated(true).setMessage("1.0.0").call();
+        git.tag().setName("2.0.0").setAnnotated(false).call();
+        git.tag().setName("unrelated").setAnnotated(true).setMessage("unrelated").call();
+        second = git.commit().setMessage("fix: something").call();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        System.clearProperty(PersistentVersionCache.CACHE_PROPERTY);
+        System.clearProperty(GitDevFlow.TAG_PREFIX_PROPERTY);
+        git.close();
+        GitDevFlow.clearVersionsCache();
+        RepositoryRegistry.closeAll();
+        deleteDirectory(directory);
+    }
+
+    @Test
+    public void indexesOnlyReleaseTags() throws IOException {
+        TagIndex tags = TagIndex.load(git.getRepository());
+        Assert.assertEquals("2.0.0", tags.releaseOf(first, false).get().getVersion());
+        Assert.assertEquals(1, tags.tagsOf(first).size());
+        Assert.assertFalse(tags.releaseOf(second, false).isPresent());
+        Assert.assertEquals("2.0.1", GitDevFlow.determineVersion(logger, directory));
+    }
+
+    @Test
+    public void honorsTagPrefix() throws IOException {
+        System.setProperty(GitDevFlow.TAG_PREFIX_PROPERTY, "release/");
+        TagIndex tags = TagIndex.load(git.getRepository());
+        Assert.assertEquals("1.0.0", tags.releaseOf(first, false).get().getVersion());
+        Assert.assertEquals("1.0.0", tags.taggedVersion(first).get());
+        Assert.assertEquals("1.0.1", GitDevFlow.determineVersion(logger, directory));
+    }
+
+    @Test
+    public void fingerprintCoversPrefix() throws IOException {
+        String fingerprint = TagIndex.load(git.getRepository()).fingerprint();
+        System.setProperty(GitDevFlow.TAG_PREFIX_PROPERTY, "release/");
+        Assert.assertNotEquals(fingerprint, TagIndex.load(git.getRepository()).fingerprint());
+    }
+
+    @Test
+    public void tagsCommitWithHighestVersion() throws IOException, GitAPIException {
+        git.tag().setName("v2.1.0").setAnnotated(false).call();
+        git.tag().setName("2.0.0.hotfix.2.0.1").setAnnotated(false).call();
+        TagIndex tags = TagIndex.load(git.getRepository());
+        Assert.assertEquals("2.1.0", tags.taggedVersion(second).get());
+        Assert.assertEquals("2.1.0", tags.releaseOf(second, false).get().getVersion());
+        Assert.assertEquals("2.0.0", tags.releaseOf(first, true).get().getVersion());
+    }
+
+    @Test
+    public void scansVersions() {
+        Assert.assertEquals("1.2.3", SemVer.of("v1.2.3").getVersion());
+        Assert.assertEquals("1.0.hotfix.1.0.1", SemVer.of("v1.0.hotfix.1.0.1").getVersion());
+        Assert.assertEquals("1.0.hotfix.", SemVer.of("1.0.hotfix.1.0.1").getBase());
+        Assert.assertEquals("x.support.", SemVer.of("x.support.0.0.1").getBase());
+        for (String invalid : new String[] { "", "v", "1.2", "1.2.3.4", ".1.2.3", "1..2.3", "1.2.3-rc1", "hotfix.1.2.3",
+                "1.hotfix1.2.3", "99999999999.0.0" }) {
+            Assert.assertNull(invalid, SemVer.parse(invalid));
+        }
+        Assert.assertTrue(SemVer.of("1.10.0").compareTo(SemVer.of("1.9.99")) > 0);
+        Assert.assertTrue(SemVer.of(20240101, 0, 0).compareTo(SemVer.of(3000000, 0, 0)) > 0);
+        Assert.assertEquals(0, SemVer.of("1.0.hotfix.1.0.1").compareTo(SemVer.of("1.0.1")));
+    }
+
+}
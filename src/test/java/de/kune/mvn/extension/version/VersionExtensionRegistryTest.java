@@ -0,0 +1,66 @@
+package de.kune.mvn.extension.version;
+
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.model.Model;
+import org.codehaus.plexus.logging.Logger;
+import org.codehaus.plexus.logging.console.ConsoleLogger;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class VersionExtensionRegistryTest {
+
+    private final Logger logger = new ConsoleLogger();
+
+    @After
+    public void clear() {
+        VersionExtensionRegistry.clear();
+    }
+
+    @Test
+    public void instantiatesEachExtensionOnce() {
+        VersionExtension gitDevFlow = VersionExtensionRegistry.extension(logger, "git-dev-flow");
+        Assert.assertTrue(gitDevFlow instanceof GitDevFlow);
+        Assert.assertSame(gitDevFlow, VersionExtensionRegistry.extension(logger, "git-dev-flow"));
+    }
+
+    @Test
+    public void discoversServiceExtensions() {
+        VersionExtension extension = VersionExtensionRegistry.extension(logger, FixedVersionExtension.class.getName());
+        Assert.assertEquals(
+                "1.2.3",
+                extension.determineVersion(logger, new Model(), Optional.empty(), Collections.emptyMap()));
+    }
+
+    @Test
+    public void memoizesVersionsPerProjectDirectory() {
+        AtomicInteger calls = new AtomicInteger();
+        File a = new File("a");
+        File b = new File("b");
+        Assert.assertEquals("1", VersionExtensionRegistry.version("x", a, () -> "" + calls.incrementAndGet()));
+        Assert.assertEquals("1", VersionExtensionRegistry.version("x", a, () -> "" + calls.incrementAndGet()));
+        Assert.assertEquals("2", VersionExtensionRegistry.version("x", b, () -> "" + calls.incrementAndGet()));
+        Assert.assertEquals("3", VersionExtensionRegistry.version("y", a, () -> "" + calls.incrementAndGet()));
+        Assert.assertEquals("4", VersionExtensionRegistry.version("x", null, () -> "" + calls.incrementAndGet()));
+    }
+
+    public static class FixedVersionExtension implements VersionExtension {
+
+        @Override
+        public String determineVersion(
+                Logger logger,
+                Model model,
+                Optional<MavenSession> mavenSession,
+                Map<String, ?> options) {
+            return "1.2.3";
+        }
+
+    }
+
+}
@@ -0,0 +1,91 @@
+package de.kune.mvn.extension.version;
+
+import org.codehaus.plexus.logging.Logger;
+import org.codehaus.plexus.logging.console.ConsoleLogger;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.lib.ObjectId;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.UUID;
+
+import static org.apache.commons.io.FileUtils.deleteDirectory;
+
+public class VersionStateTest {
+
+    private final Logger logger = new ConsoleLogger(Logger.LEVEL_INFO, "test");
+
+    private File directory;
+
+    private Git git;
+
+    private ObjectId boundary;
+
+    @Before
+    public void setUp() throws IOException, GitAPIException {
+        System.setProperty(PersistentVersionCache.CACHE_PROPERTY, "false");
+        System.setProperty(BranchHints.BRANCH_HINTS_PROPERTY, "false");
+        directory = Files.createTempDirectory(UUID.randomUUID().toString()).toFile();
+        git = Git.init().setDirectory(directory).call();
+        git.commit().setMessage("chore: initial commit").call();
+        git.tag().setName("1.0.0").setAnnotated(false).call();
+        git.commit().setMessage("feat: something").call();
+        boundary = git.commit().setMessage("fix: something").call();
+        git.commit().setMessage("fix: something else").call();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        System.clearProperty(PersistentVersionCache.CACHE_PROPERTY);
+        System.clearProperty(BranchHints.BRANCH_HINTS_PROPERTY);
+        System.clearProperty(VersionState.BASE_RELEASE_PROPERTY);
+        System.clearProperty(VersionState.BUMP_PROPERTY);
+        git.close();
+        GitDevFlow.clearVersionsCache();
+        RepositoryRegistry.closeAll();
+        deleteDirectory(directory);
+    }
+
+    @Test
+    public void ignoresVersionStateOfCompleteHistory() throws IOException {
+        System.setProperty(VersionState.BASE_RELEASE_PROPERTY, "3.0.0");
+        Assert.assertEquals("1.1.0", GitDevFlow.determineVersion(logger, directory));
+    }
+
+    @Test
+    public void stopsAtShallowBoundary() throws IOException {
+        makeShallow();
+        Assert.assertEquals("0.0.1", GitDevFlow.determineVersion(logger, directory));
+    }
+
+    @Test
+    public void appliesVersionStateProperties() throws IOException {
+        makeShallow();
+        System.setProperty(VersionState.BASE_RELEASE_PROPERTY, "1.0.0");
+        System.setProperty(VersionState.BUMP_PROPERTY, "minor");
+        Assert.assertEquals("1.1.0", GitDevFlow.determineVersion(logger, directory));
+    }
+
+    @Test
+    public void appliesVersionStateFile() throws IOException {
+        makeShallow();
+        File file = new File(directory, VersionState.VERSION_STATE_FILE);
+        Files.createDirectories(file.getParentFile().toPath());
+        Files.write(file.toPath(), "base-release=1.0.0\n".getBytes(StandardCharsets.UTF_8));
+        Assert.assertEquals("1.0.1", GitDevFlow.determineVersion(logger, directory));
+    }
+
+    private void makeShallow() throws IOException {
+        Files.write(
+                new File(git.getRepository().getDirectory(), "shallow").toPath(),
+                (boundary.getName() + "\n").getBytes(StandardCharsets.US_ASCII));
+    }
+
+}
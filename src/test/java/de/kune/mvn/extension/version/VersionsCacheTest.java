@@ -0,0 +1,110 @@
+package de.kune.mvn.extension.version;
+
+import org.codehaus.plexus.logging.Logger;
+import org.codehaus.plexus.logging.console.ConsoleLogger;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.RefUpdate;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.UUID;
+
+import static org.apache.commons.io.FileUtils.deleteDirectory;
+
+public class VersionsCacheTest {
+
+    private final Logger logger = new ConsoleLogger(Logger.LEVEL_INFO, "test");
+
+    private File directory;
+
+    private Git git;
+
+    @Before
+    public void setUp() throws IOException, GitAPIException {
+        System.setProperty(PersistentVersionCache.CACHE_PROPERTY, "false");
+        directory = Files.createTempDirectory(UUID.randomUUID().toString()).toFile();
+        git = Git.init().setDirectory(directory).call();
+        git.commit().setMessage("chore: initial commit").call();
+        git.tag().setName("1.0.0").call();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        System.clearProperty(PersistentVersionCache.CACHE_PROPERTY);
+        git.close();
+        RepositoryRegistry.closeAll();
+        deleteDirectory(directory);
+    }
+
+    @Test
+    public void invalidatesOnCommitAndTag() throws GitAPIException {
+        Assert.assertEquals("1.0.0", GitDevFlow.determineVersion(logger, directory));
+        git.commit().setMessage("feat: something").call();
+        Assert.assertEquals("1.1.0", GitDevFlow.determineVersion(logger, directory));
+        git.tag().setName("1.1.0").call();
+        git.commit().setMessage("fix: something").call();
+        Assert.assertEquals("1.1.1", GitDevFlow.determineVersion(logger, directory));
+        Assert.assertEquals("1.1.1", GitDevFlow.determineVersion(logger, directory));
+    }
+
+    @Test
+    public void fingerprintChangesWithTags() throws GitAPIException {
+        String fingerprint = VersionsCache.fingerprint(git.getRepository());
+        Assert.assertEquals(fingerprint, VersionsCache.fingerprint(git.getRepository()));
+        git.tag().setName("other").call();
+        Assert.assertNotEquals(fingerprint, VersionsCache.fingerprint(git.getRepository()));
+    }
+
+    @Test
+    public void fingerprintChangesWithNestedRefs() throws GitAPIException {
+        git.tag().setName("services/a/1.0.0").call();
+        git.branchCreate().setName("feature/x").call();
+        String fingerprint = VersionsCache.fingerprint(git.getRepository());
+        git.tag().setName("services/a/1.1.0").call();
+        String tagged = VersionsCache.fingerprint(git.getRepository());
+        Assert.assertNotEquals(fingerprint, tagged);
+        git.branchRename().setOldName("feature/x").setNewName("feature/y").call();
+        Assert.assertNotEquals(tagged, VersionsCache.fingerprint(git.getRepository()));
+    }
+
+    @Test
+    public void fingerprintChangesWithRemoteTrackingBranchOfHint() throws GitAPIException, IOException {
+        System.setProperty(BranchHints.BRANCH_PROPERTY, "develop");
+        try {
+            updateRef("refs/remotes/origin/develop");
+            String fingerprint = VersionsCache.fingerprint(git.getRepository());
+            Assert.assertEquals(fingerprint, VersionsCache.fingerprint(git.getRepository()));
+            git.commit().setMessage("feat: something").call();
+            updateRef("refs/remotes/origin/develop");
+            Assert.assertNotEquals(fingerprint, VersionsCache.fingerprint(git.getRepository()));
+        } finally {
+            System.clearProperty(BranchHints.BRANCH_PROPERTY);
+        }
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsedEntries() {
+        VersionsCache cache = new VersionsCache();
+        for (int i = 0; i < 300; i++) {
+            cache.put("key-" + i, "f", "1.0." + i);
+            Assert.assertEquals("1.0.0", cache.get("key-0", "f").get());
+        }
+        Assert.assertEquals(256, cache.size());
+        Assert.assertFalse(cache.get("key-1", "f").isPresent());
+        Assert.assertFalse(cache.get("key-0", "other").isPresent());
+    }
+
+    private void updateRef(String name) throws IOException {
+        RefUpdate update = git.getRepository().updateRef(name);
+        update.setNewObjectId(git.getRepository().resolve(Constants.HEAD));
+        update.forceUpdate();
+    }
+
+}
@@ -0,0 +1,46 @@
+package de.kune.mvn.extension.version;
+
+import org.eclipse.jgit.lib.ObjectId;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+
+public class WalkTraceTest {
+
+    @After
+    public void tearDown() {
+        WalkTrace.end();
+    }
+
+    @Test
+    public void keepsLastCommits() {
+        WalkTrace trace = new WalkTrace("First-parent", null);
+        for (int i = 0; i < WalkTrace.CAPACITY + 10; i++) {
+            trace.record(id(i), 1, i == WalkTrace.CAPACITY + 9 ? WalkTrace.RELEASE : WalkTrace.VISIT);
+        }
+        String[] lines = trace.format().split("\n");
+        Assert.assertEquals("First-parent walk (" + (WalkTrace.CAPACITY + 10) + " commits):", lines[0]);
+        Assert.assertEquals("  ... 10 earlier commits", lines[1]);
+        Assert.assertEquals("  " + id(10).getName() + " parents: 1", lines[2]);
+        Assert.assertEquals("  " + id(WalkTrace.CAPACITY + 9).getName() + " parents: 1 release", lines[lines.length - 1]);
+        Assert.assertEquals(WalkTrace.CAPACITY + 2, lines.length);
+    }
+
+    @Test
+    public void registersWithResolution() {
+        Assert.assertEquals(0, WalkTrace.open("Reachable-tag", null).size());
+        List<WalkTrace> traces = WalkTrace.begin();
+        WalkTrace trace = WalkTrace.open("Reachable-tag", null);
+        WalkTrace.end();
+        WalkTrace.open("Reachable-tag", null);
+        Assert.assertEquals(1, traces.size());
+        Assert.assertSame(trace, traces.get(0));
+    }
+
+    private static ObjectId id(int i) {
+        return ObjectId.fromRaw(new int[] { i, 0, 0, 0, i });
+    }
+
+}